@@ -3,6 +3,7 @@ package neoflix;
 import com.google.gson.Gson;
 import org.neo4j.driver.AuthToken;
 import org.neo4j.driver.AuthTokens;
+import org.neo4j.driver.Config;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.GraphDatabase;
 
@@ -13,6 +14,7 @@ import java.io.InputStreamReader;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import javax.servlet.http.HttpServletRequest;
@@ -33,13 +35,13 @@ public class AppUtils {
         return user.toString();
     }
 
-    static void handleAuthAndSetUser(HttpServletRequest request, String jwtSecret) {
+    static void handleAuthAndSetUser(HttpServletRequest request, AuthUtils authUtils) {
         String token = request.getHeader("Authorization");
         String bearer = "Bearer ";
         if (token != null && !token.isBlank() && token.startsWith(bearer)) {
             // verify token
             token = token.substring(bearer.length());
-            String userId = AuthUtils.verify(token, jwtSecret);
+            String userId = authUtils.verify(token);
             request.setAttribute("user", userId);
         }
     }
@@ -47,20 +49,120 @@ public class AppUtils {
     // tag::initDriver[]
     static Driver initDriver() {
         var driver = GraphDatabase.driver(getNeo4jUri(),
-                AuthTokens.basic(getNeo4jUsername(), getNeo4jPassword()));
+                AuthTokens.basic(getNeo4jUsername(), getNeo4jPassword()), getDriverConfig());
         driver.verifyConnectivity();
         return driver;
     }
     // end::initDriver[]
 
+    /**
+     * Connection pool and fetch settings of the driver, the driver defaults apply to unset properties.
+     * Durations are in seconds, a negative liveness check timeout disables the check.
+     */
+    static Config getDriverConfig() {
+        var config = Config.builder().withDriverMetrics();
+        var poolSize = System.getProperty("NEO4J_MAX_POOL_SIZE");
+        if (poolSize != null) config.withMaxConnectionPoolSize(Integer.parseInt(poolSize));
+        var lifetime = System.getProperty("NEO4J_MAX_CONNECTION_LIFETIME");
+        if (lifetime != null) config.withMaxConnectionLifetime(Long.parseLong(lifetime), TimeUnit.SECONDS);
+        var acquisitionTimeout = System.getProperty("NEO4J_CONNECTION_ACQUISITION_TIMEOUT");
+        if (acquisitionTimeout != null) config.withConnectionAcquisitionTimeout(Long.parseLong(acquisitionTimeout), TimeUnit.SECONDS);
+        var fetchSize = System.getProperty("NEO4J_FETCH_SIZE");
+        if (fetchSize != null) config.withFetchSize(Long.parseLong(fetchSize));
+        var livenessCheck = System.getProperty("NEO4J_LIVENESS_CHECK_TIMEOUT");
+        if (livenessCheck != null && Long.parseLong(livenessCheck) >= 0) {
+            config.withConnectionLivenessCheckTimeout(Long.parseLong(livenessCheck), TimeUnit.SECONDS);
+        }
+        return config.build();
+    }
+
     static int getServerPort() {
         return Integer.parseInt(System.getProperty("APP_PORT", "3000"));
     }
 
+    /**
+     * Whether request handlers run on virtual threads instead of Jetty's thread pool.
+     */
+    static boolean useVirtualThreads() {
+        return Boolean.parseBoolean(System.getProperty("VIRTUAL_THREADS", "false"));
+    }
+
+    static boolean bootstrapSchema() {
+        return Boolean.parseBoolean(System.getProperty("SCHEMA_BOOTSTRAP", "false"));
+    }
+
+    static long getSchemaAwaitTimeout() {
+        return Long.parseLong(System.getProperty("SCHEMA_AWAIT_TIMEOUT", "300"));
+    }
+
+    public static String getSearchMode() {
+        return System.getProperty("SEARCH_MODE");
+    }
+
+    static long getSuggestRefreshInterval() {
+        return Long.parseLong(System.getProperty("SUGGEST_REFRESH_INTERVAL", "600"));
+    }
+
+    static boolean backfillRatingAggregates() {
+        return Boolean.parseBoolean(System.getProperty("BACKFILL_RATING_AGGREGATES", "false"));
+    }
+
+    static boolean backfillPersonCounts() {
+        return Boolean.parseBoolean(System.getProperty("BACKFILL_PERSON_COUNTS", "false"));
+    }
+
     static String getJwtSecret() {
         return System.getProperty("JWT_SECRET");
     }
 
+    public static String getFavoritesMode() {
+        return System.getProperty("FAVORITES_MODE");
+    }
+
+    public static int getFavoritesCacheSize() {
+        return Integer.parseInt(System.getProperty("FAVORITES_CACHE_SIZE", "10000"));
+    }
+
+    public static long getFavoritesCacheTtl() {
+        return Long.parseLong(System.getProperty("FAVORITES_CACHE_TTL", "300"));
+    }
+
+    public static long getGenreCatalogTtl() {
+        return Long.parseLong(System.getProperty("GENRE_CATALOG_TTL", "300"));
+    }
+
+    public static String getMovieDetailMode() {
+        return System.getProperty("MOVIE_DETAIL_MODE");
+    }
+
+    public static int getRatingCountCacheSize() {
+        return Integer.parseInt(System.getProperty("RATING_COUNT_CACHE_SIZE", "10000"));
+    }
+
+    public static long getRatingCountCacheTtl() {
+        return Long.parseLong(System.getProperty("RATING_COUNT_CACHE_TTL", "60"));
+    }
+
+    public static String getSimilarMoviesMode() {
+        return System.getProperty("SIMILAR_MOVIES_MODE");
+    }
+
+    public static String getSimilarPeopleMode() {
+        return System.getProperty("SIMILAR_PEOPLE_MODE");
+    }
+
+    static long getSimilarPeopleRefreshInterval() {
+        return Long.parseLong(System.getProperty("SIMILAR_PEOPLE_REFRESH_INTERVAL", "86400"));
+    }
+
+    static int getSimilarMoviesTopK() {
+        return Integer.parseInt(System.getProperty("SIMILAR_MOVIES_TOP_K", "50"));
+    }
+
+    static long getSimilarMoviesRefreshInterval() {
+        return Long.parseLong(System.getProperty("SIMILAR_MOVIES_REFRESH_INTERVAL", "86400"));
+    }
+
     static String getNeo4jUri() {
         return System.getProperty("NEO4J_URI");
     }
@@ -9,9 +9,45 @@ import com.auth0.jwt.interfaces.DecodedJWT;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public class AuthUtils {
+    static final int TOKEN_CACHE_SIZE = 10_000;
+
+    private static final Map<String, AuthUtils> instances = new ConcurrentHashMap<>();
+
+    private final Algorithm algorithm;
+    private final JWTVerifier verifier;
+    private final Map<String, VerifiedToken> verifiedTokens;
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    record VerifiedToken(String userId, long expiresAt) {}
+
+    /**
+     * Returns the shared token service for the given secret, the algorithm, verifier
+     * and cache of verified tokens are created only once per secret.
+     */
+    public static AuthUtils forSecret(String secret) {
+        return instances.computeIfAbsent(secret, s -> new AuthUtils(s, TOKEN_CACHE_SIZE));
+    }
+
+    AuthUtils(String secret, int cacheSize) {
+        this.algorithm = Algorithm.HMAC256(secret);
+        this.verifier = JWT.require(algorithm)
+                .withIssuer("auth0")
+                .build(); //Reusable verifier instance
+        // access ordered map, evicts the least recently used token when full
+        this.verifiedTokens = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
 
     public static String encryptPassword(String password) {
         return BCrypt.withDefaults().hashToString(12, password.toCharArray());
@@ -21,19 +57,37 @@ public class AuthUtils {
         return result.verified;
     }
 
-    public static String verify(String token, String secret) {
-        // todo reuse
-        Algorithm algorithm = Algorithm.HMAC256(secret);
-        // todo reuse
-        JWTVerifier verifier = JWT.require(algorithm)
-                .withIssuer("auth0")
-                .build(); //Reusable verifier instance
+    /**
+     * Verifies the token and returns its subject (the userId).
+     * Tokens that were verified before are served from the cache until they expire.
+     */
+    public String verify(String token) {
+        long now = System.currentTimeMillis();
+        VerifiedToken cached;
+        synchronized (verifiedTokens) {
+            cached = verifiedTokens.get(token);
+            if (cached != null && cached.expiresAt() <= now) {
+                verifiedTokens.remove(token);
+                cached = null;
+            }
+        }
+        if (cached != null) {
+            cacheHits.increment();
+            return cached.userId();
+        }
+        cacheMisses.increment();
         DecodedJWT jwt = verifier.verify(token);
+        Date expiresAt = jwt.getExpiresAt();
+        // tokens without expiry are never cached
+        if (expiresAt != null) {
+            synchronized (verifiedTokens) {
+                verifiedTokens.put(token, new VerifiedToken(jwt.getSubject(), expiresAt.getTime()));
+            }
+        }
         return jwt.getSubject(); // sub == userId
     }
 
-    public static String sign(String sub, Map<String,Object> data, String secret) {
-        Algorithm algorithm = Algorithm.HMAC256(secret);
+    public String sign(String sub, Map<String,Object> data) {
         try {
             Calendar cal = Calendar.getInstance();
             cal.add(Calendar.DATE,1);
@@ -50,4 +104,18 @@ public class AuthUtils {
             throw new RuntimeException(exception);
         }
     }
+
+    public long tokenCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long tokenCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    public int tokenCacheSize() {
+        synchronized (verifiedTokens) {
+            return verifiedTokens.size();
+        }
+    }
 }
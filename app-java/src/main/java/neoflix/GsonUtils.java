@@ -1,14 +1,41 @@
 package neoflix;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonWriter;
 
+import io.javalin.http.Context;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 
 public class GsonUtils {
+    public static final String NDJSON = "application/x-ndjson";
+    // rows requested from the stream at a time, and written before each flush
+    private static final int NDJSON_BATCH = 64;
+    // completes the async results off the driver event loop, see offEventLoop
+    private static final Executor writers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("json-writer-", 0).factory());
+    private static final Object NOT_MODIFIED = new Object();
+
+    // Gson instances are thread-safe, so one configured instance is shared by the whole app
+    private static final Gson gson = createGson();
+
     public static Gson gson() {
+        return gson;
+    }
+
+    private static Gson createGson() {
         try {
             Class type = Class.forName("java.util.Collections$EmptyList");
             GsonBuilder gsonBuilder = new GsonBuilder()
@@ -22,6 +49,139 @@ public class GsonUtils {
         }
     }
 
+    /**
+     * Serializes the value directly into the response output stream, without building
+     * the whole JSON document as an intermediate String first.
+     * Lists are written element by element.
+     *
+     * @param ctx the request context to write to
+     * @param gson the configured Gson instance
+     * @param value the value to serialize, e.g. a List<Map<String,Object>> of results
+     */
+    public static void writeJson(Context ctx, Gson gson, Object value) throws IOException {
+        ctx.contentType("application/json");
+        var out = new OutputStreamWriter(ctx.res.getOutputStream(), StandardCharsets.UTF_8);
+        JsonWriter writer = gson.newJsonWriter(out);
+        if (value instanceof List<?> list) {
+            writer.beginArray();
+            for (Object row : list) {
+                if (row == null) writer.nullValue();
+                else gson.toJson(row, row.getClass(), writer);
+            }
+            writer.endArray();
+        } else if (value == null) {
+            writer.nullValue();
+        } else {
+            gson.toJson(value, value.getClass(), writer);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes a page of a listing. For keyset listings the cursor of the following page is
+     * sent in the `X-Next-Cursor` header, so the body stays a plain array.
+     */
+    public static void writePage(Context ctx, Gson gson, Params params, List<? extends Params.Sortable> page) throws IOException {
+        String next = params.nextCursor(page);
+        if (next != null) ctx.header("X-Next-Cursor", next);
+        writeJson(ctx, gson, page);
+    }
+
+    /**
+     * Hands the future to Javalin, which releases the request thread, and writes the
+     * result with writeJson once the future completes.
+     */
+    public static void writeJsonAsync(Context ctx, Gson gson, CompletableFuture<?> future) {
+        ctx.future(offEventLoop(future), value -> write(ctx, gson, value));
+    }
+
+    /**
+     * Like writeJsonAsync, sending the cursor of the following page like writePage.
+     */
+    public static <T extends Params.Sortable> void writePageAsync(Context ctx, Gson gson, Params params, CompletableFuture<? extends List<T>> future) {
+        var page = future.thenApplyAsync(rows -> {
+            String next = params.nextCursor(rows);
+            if (next != null) ctx.header("X-Next-Cursor", next);
+            return rows;
+        }, writers);
+        ctx.future(page, value -> write(ctx, gson, value));
+    }
+
+    /**
+     * Like writeJsonAsync for a result with an entity tag. The body is written with its tag
+     * in the `ETag` header, or, when the `If-None-Match` header of the request has the tag,
+     * the response is 304 Not Modified without a body.
+     */
+    public static <T> void writeJsonAsync(Context ctx, Gson gson, CompletableFuture<T> future,
+                                          Function<T, String> etag, Function<T, ?> body) {
+        var json = future.thenApplyAsync(value -> {
+            String tag = etag.apply(value);
+            ctx.header("ETag", tag);
+            return matches(ctx.header("If-None-Match"), tag) ? NOT_MODIFIED : body.apply(value);
+        }, writers);
+        ctx.future(json, value -> {
+            if (value == NOT_MODIFIED) ctx.status(304);
+            else write(ctx, gson, value);
+        });
+    }
+
+    /**
+     * Javalin runs the callback of ctx.future on the thread that completes the future,
+     * which for the async driver is its event loop. Completing on a virtual thread first
+     * keeps serializing and writing to slow clients off the loop the other queries share.
+     */
+    private static <T> CompletableFuture<T> offEventLoop(CompletableFuture<T> future) {
+        return future.thenApplyAsync(Function.identity(), writers);
+    }
+
+    private static void write(Context ctx, Gson gson, Object value) {
+        try {
+            writeJson(ctx, gson, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) candidate = candidate.substring(2);
+            if (candidate.equals("*") || candidate.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    public static boolean acceptsNdjson(Context ctx) {
+        String accept = ctx.header("Accept");
+        return accept != null && accept.contains(NDJSON);
+    }
+
+    /**
+     * Writes the rows as newline delimited JSON while they are streamed from the database.
+     * The rows are consumed on the request thread, a batch at a time, so a slow client
+     * holds back the query rather than rows being buffered in memory.
+     */
+    public static void writeNdjson(Context ctx, Gson gson, Flux<?> rows) throws IOException {
+        ctx.contentType(NDJSON);
+        var out = new OutputStreamWriter(ctx.res.getOutputStream(), StandardCharsets.UTF_8);
+        int written = 0;
+        for (Object row : rows.toIterable(NDJSON_BATCH)) {
+            gson.toJson(row, row.getClass(), out);
+            out.write('\n');
+            if (++written % NDJSON_BATCH == 0) out.flush();
+        }
+        out.flush();
+    }
+
+    public static String formatDate(LocalDate localDate) {
+        return LocalDateSerializer.formatter.format(localDate);
+    }
+
+    public static LocalDate parseDate(String date) {
+        return LocalDate.parse(date, LocalDateSerializer.formatter);
+    }
+
     static class LocalDateSerializer implements JsonSerializer<LocalDate> {
         private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MMM-yyyy");
 
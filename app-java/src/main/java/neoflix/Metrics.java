@@ -0,0 +1,164 @@
+package neoflix;
+
+import org.neo4j.driver.ConnectionPoolMetrics;
+import org.neo4j.driver.Driver;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Request latency histograms per route group and query timings per named statement,
+ * written together with the driver's connection pool metrics in the Prometheus text format.
+ */
+public class Metrics {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    public static final String REQUEST_START = "neoflix.requestStart";
+
+    private static final Set<String> ROUTE_GROUPS = Set.of("movies", "genres", "auth", "account", "people", "status", "search");
+    // Histogram bucket bounds written to Prometheus, powers of two from 64µs to 32s
+    private static final int MIN_BOUND = 6;
+    private static final int MAX_BOUND = 25;
+
+    private static final Map<String, LatencyHistogram> requests = new ConcurrentHashMap<>();
+    // per statement: wall time on the client, and server time until the first and the last record
+    private static final Map<String, LatencyHistogram> queryClient = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> queryAvailable = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> queryConsumed = new ConcurrentHashMap<>();
+
+    /**
+     * Records the duration of a request to the group of its path, e.g. `movies` for /api/movies/{id}.
+     */
+    public static void recordRequest(String path, long startNanos) {
+        requests.computeIfAbsent(routeGroup(path), group -> new LatencyHistogram())
+                .record(System.nanoTime() - startNanos);
+    }
+
+    static String routeGroup(String path) {
+        String prefix = "/api/";
+        if (!path.startsWith(prefix)) return "other";
+        int end = path.indexOf('/', prefix.length());
+        String group = path.substring(prefix.length(), end < 0 ? path.length() : end);
+        return ROUTE_GROUPS.contains(group) ? group : "other";
+    }
+
+    public static LatencyHistogram request(String group) {
+        return requests.get(group);
+    }
+
+    /**
+     * Records the timings of a query. The server timings are -1 when the server did not report them.
+     */
+    public static void recordQuery(String statement, long clientNanos, long availableAfterNanos, long consumedAfterNanos) {
+        histogram(queryClient, statement).record(clientNanos);
+        if (availableAfterNanos >= 0) histogram(queryAvailable, statement).record(availableAfterNanos);
+        if (consumedAfterNanos >= 0) histogram(queryConsumed, statement).record(consumedAfterNanos);
+    }
+
+    private static LatencyHistogram histogram(Map<String, LatencyHistogram> histograms, String key) {
+        var histogram = histograms.get(key);
+        return histogram != null ? histogram : histograms.computeIfAbsent(key, k -> new LatencyHistogram());
+    }
+
+    /**
+     * Count and percentiles in milliseconds of the client time of each statement, busiest first.
+     */
+    public static List<Map<String, Object>> querySummary() {
+        return queryClient.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, LatencyHistogram> e) -> e.getValue().sumNanos()).reversed())
+                .map(e -> {
+                    var summary = new LinkedHashMap<String, Object>();
+                    var histogram = e.getValue();
+                    summary.put("statement", e.getKey());
+                    summary.put("count", histogram.count());
+                    summary.put("totalMs", histogram.sumNanos() / 1_000_000);
+                    summary.put("p50Ms", histogram.percentile(0.5) / 1000.0);
+                    summary.put("p99Ms", histogram.percentile(0.99) / 1000.0);
+                    var server = queryConsumed.get(e.getKey());
+                    if (server != null) summary.put("serverP99Ms", server.percentile(0.99) / 1000.0);
+                    return (Map<String, Object>) summary;
+                })
+                .toList();
+    }
+
+    public static String prometheus(Driver driver) {
+        var out = new StringBuilder(8192);
+        if (driver != null && driver.isMetricsEnabled()) {
+            writePools(out, driver);
+        }
+        writeHistograms(out, "neoflix_http_request_duration_seconds",
+                "Duration of API requests by route group", "group", requests);
+        writeHistograms(out, "neoflix_query_client_seconds",
+                "Wall time of queries on the client, including reading the records", "statement", queryClient);
+        writeHistograms(out, "neoflix_query_server_available_seconds",
+                "Server time until the first record of a query was available", "statement", queryAvailable);
+        writeHistograms(out, "neoflix_query_server_consumed_seconds",
+                "Server time until all records of a query were consumed", "statement", queryConsumed);
+        return out.toString();
+    }
+
+    private static void writePools(StringBuilder out, Driver driver) {
+        var pools = driver.metrics().connectionPoolMetrics();
+        writePoolMetric(out, pools, "neo4j_pool_in_use", "gauge", "Connections in use", ConnectionPoolMetrics::inUse);
+        writePoolMetric(out, pools, "neo4j_pool_idle", "gauge", "Idle connections", ConnectionPoolMetrics::idle);
+        writePoolMetric(out, pools, "neo4j_pool_creating", "gauge", "Connections being created", ConnectionPoolMetrics::creating);
+        writePoolMetric(out, pools, "neo4j_pool_acquiring", "gauge", "Requests waiting to acquire a connection", ConnectionPoolMetrics::acquiring);
+        writePoolMetric(out, pools, "neo4j_pool_acquired_total", "counter", "Connections acquired", ConnectionPoolMetrics::acquired);
+        writePoolMetric(out, pools, "neo4j_pool_acquisition_timeouts_total", "counter", "Acquisitions that timed out", ConnectionPoolMetrics::timedOutToAcquire);
+        writePoolMetric(out, pools, "neo4j_pool_created_total", "counter", "Connections created", ConnectionPoolMetrics::created);
+        writePoolMetric(out, pools, "neo4j_pool_failed_to_create_total", "counter", "Connections that failed to be created", ConnectionPoolMetrics::failedToCreate);
+        writePoolMetric(out, pools, "neo4j_pool_closed_total", "counter", "Connections closed", ConnectionPoolMetrics::closed);
+        writePoolMetric(out, pools, "neo4j_pool_acquisition_seconds_total", "counter", "Time spent acquiring connections",
+                pool -> pool.totalAcquisitionTime() / 1000.0);
+        writePoolMetric(out, pools, "neo4j_pool_in_use_seconds_total", "counter", "Time connections were in use",
+                pool -> pool.totalInUseTime() / 1000.0);
+    }
+
+    private interface PoolValue {
+        Number get(ConnectionPoolMetrics pool);
+    }
+
+    private static void writePoolMetric(StringBuilder out, Iterable<ConnectionPoolMetrics> pools, String name,
+                                        String type, String help, PoolValue value) {
+        writeHeader(out, name, type, help);
+        for (ConnectionPoolMetrics pool : pools) {
+            out.append(name).append("{pool=\"").append(escape(pool.id())).append("\"} ")
+                    .append(value.get(pool)).append('\n');
+        }
+    }
+
+    /**
+     * Writes histograms keyed by the value of a label, with cumulative buckets in seconds.
+     */
+    static void writeHistograms(StringBuilder out, String name, String help, String label,
+                                Map<String, LatencyHistogram> histograms) {
+        writeHeader(out, name, "histogram", help);
+        for (var entry : new TreeMap<>(histograms).entrySet()) {
+            String labels = label + "=\"" + escape(entry.getKey()) + "\"";
+            LatencyHistogram histogram = entry.getValue();
+            long count = histogram.countBelow(Long.MAX_VALUE);
+            for (int bound = MIN_BOUND; bound <= MAX_BOUND; bound++) {
+                long micros = 1L << bound;
+                out.append(name).append("_bucket{").append(labels).append(",le=\"")
+                        .append(micros / 1_000_000.0).append("\"} ").append(histogram.countBelow(micros)).append('\n');
+            }
+            out.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(count).append('\n');
+            out.append(name).append("_sum{").append(labels).append("} ").append(histogram.sumNanos() / 1e9).append('\n');
+            out.append(name).append("_count{").append(labels).append("} ").append(count).append('\n');
+        }
+    }
+
+    private static void writeHeader(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -1,10 +1,19 @@
 package neoflix;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import io.javalin.Javalin;
 import io.javalin.http.staticfiles.Location;
 import neoflix.routes.*;
+import neoflix.services.BatchJobs;
+import neoflix.services.MovieService;
+import neoflix.services.PeopleService;
+import neoflix.services.SearchService;
+import org.neo4j.driver.Driver;
+import org.eclipse.jetty.server.Server;
 
 import static io.javalin.apibuilder.ApiBuilder.path;
 
@@ -17,12 +26,21 @@ public class NeoflixApp {
         var driver = AppUtils.initDriver();
         // end::driver[]
 
+        if (driver != null && AppUtils.bootstrapSchema()) {
+            Schema.bootstrap(driver, AppUtils.getSchemaAwaitTimeout());
+        }
+        startBatchJobs(driver);
+
         var jwtSecret = AppUtils.getJwtSecret();
+        var authUtils = AuthUtils.forSecret(jwtSecret);
         var port = AppUtils.getServerPort();
 
         var gson = GsonUtils.gson();
         var server = Javalin
             .create(config -> {
+                if (AppUtils.useVirtualThreads()) {
+                    config.server(() -> new Server(new VirtualThreadPool()));
+                }
                 config.addStaticFiles("/", Location.CLASSPATH);
                 config.addStaticFiles(staticFiles -> {
                     staticFiles.hostedPath = "/";
@@ -30,7 +48,12 @@ public class NeoflixApp {
                     staticFiles.location = Location.CLASSPATH;
                 });
             })
-            .before(ctx -> AppUtils.handleAuthAndSetUser(ctx.req, jwtSecret))
+            .before("/api/*", ctx -> ctx.attribute(Metrics.REQUEST_START, System.nanoTime()))
+            .before(ctx -> AppUtils.handleAuthAndSetUser(ctx.req, authUtils))
+            .after("/api/*", ctx -> {
+                Long start = ctx.attribute(Metrics.REQUEST_START);
+                if (start != null) Metrics.recordRequest(ctx.path(), start);
+            })
             .routes(() -> {
                 path("/api", () -> {
                     path("/movies", new MovieRoutes(driver, gson));
@@ -38,6 +61,8 @@ public class NeoflixApp {
                     path("/auth", new AuthRoutes(driver, gson, jwtSecret));
                     path("/account", new AccountRoutes(driver, gson));
                     path("/people", new PeopleRoutes(driver, gson));
+                    path("/status", new StatusRoutes(driver, gson));
+                    path("/search", new SearchRoutes(driver, gson));
                 });
             })
             .exception(ValidationException.class, (exception, ctx) -> {
@@ -47,4 +72,64 @@ public class NeoflixApp {
             .start(port);
         System.out.printf("Server listening on http://localhost:%d/%n", port);
     }
+
+    /**
+     * Starts the maintenance jobs enabled in application.properties in the background.
+     * The precompute jobs are checked at least hourly and only run once their data is older
+     * than the interval. The instance that claims the refresh runs it, the others skip it.
+     */
+    private static void startBatchJobs(Driver driver) {
+        if (driver == null) return;
+        var jobs = new BatchJobs(driver);
+        if (AppUtils.backfillRatingAggregates()) {
+            runOnce("rating-backfill", () -> System.out.printf("Computed rating aggregates of %d movies%n",
+                    jobs.backfillRatingAggregates(1000)));
+        }
+        if (AppUtils.backfillPersonCounts()) {
+            runOnce("person-backfill", () -> System.out.printf("Computed movie counts of %d people%n",
+                    jobs.backfillPersonCounts(1000)));
+        }
+        var searchService = new SearchService(driver);
+        schedule("suggest-refresh", AppUtils.getSuggestRefreshInterval(), searchService::reload);
+
+        long similarMovies = AppUtils.getSimilarMoviesRefreshInterval();
+        if (MovieService.SimilarMode.of(AppUtils.getSimilarMoviesMode()) == MovieService.SimilarMode.PRECOMPUTED) {
+            schedule("similar-movies-refresh", Math.min(similarMovies, 3600), () ->
+                    jobs.refreshSimilarMoviesIfStale(Duration.ofSeconds(similarMovies), AppUtils.getSimilarMoviesTopK(), 100)
+                            .ifPresent(at -> System.out.printf("Refreshed similar movies at %s%n", at)));
+        }
+        long similarPeople = AppUtils.getSimilarPeopleRefreshInterval();
+        if (PeopleService.SimilarMode.of(AppUtils.getSimilarPeopleMode()) == PeopleService.SimilarMode.PRECOMPUTED) {
+            schedule("worked-with-refresh", Math.min(similarPeople, 3600), () ->
+                    jobs.refreshWorkedWithIfStale(Duration.ofSeconds(similarPeople), 100)
+                            .ifPresent(at -> System.out.printf("Refreshed co-workers at %s%n", at)));
+        }
+    }
+
+    /**
+     * Runs the job now and then every `intervalSeconds` on a virtual thread. An interval of
+     * 0 or less disables the job. A failed run is reported and retried at the next interval.
+     */
+    private static void schedule(String name, long intervalSeconds, Runnable job) {
+        if (intervalSeconds <= 0) return;
+        Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name(name).factory())
+                .scheduleWithFixedDelay(reporting(name, job), 0, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Runs the job once on a virtual thread, e.g. a backfill on startup.
+     */
+    private static void runOnce(String name, Runnable job) {
+        Thread.ofVirtual().name(name).start(reporting(name, job));
+    }
+
+    private static Runnable reporting(String name, Runnable job) {
+        return () -> {
+            try {
+                job.run();
+            } catch (Exception e) {
+                System.err.printf("Job %s failed: %s%n", name, e.getMessage());
+            }
+        };
+    }
 }
\ No newline at end of file
@@ -4,14 +4,37 @@ import static neoflix.Params.Sort.*;
 
 import io.javalin.http.Context;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
 import java.util.EnumSet;
-import java.util.Optional;
+import java.util.List;
+import java.util.Map;
+
+public record Params(String query, Sort sort, Order order, int limit, int skip, Cursor cursor) {
+    public Params(String query, Sort sort, Order order, int limit, int skip) {
+        this(query, sort, order, limit, skip, null);
+    }
 
-public record Params(String query, Sort sort, Order order, int limit, int skip) {
     public Sort sort(Sort defaultSort) {
         return sort == null ? defaultSort : sort;
     }
 
+    /**
+     * The same params with SKIP/LIMIT pagination, for listings that cannot continue from a cursor.
+     */
+    public Params withoutCursor() {
+        return cursor == null ? this : new Params(query, sort, order, limit, skip);
+    }
+
+    /**
+     * Keyset pagination is used when a cursor was passed, even an empty one for the first page.
+     */
+    public boolean keyset() {
+        return cursor != null;
+    }
+
     public enum Order {
         ASC, DESC;
 
@@ -32,6 +55,70 @@ public record Params(String query, Sort sort, Order order, int limit, int skip)
         }
     }
 
+    /**
+     * An opaque position in a sorted listing: the sort value and the id of the last row
+     * of the previous page. Listings continue with the rows after `(after, id)` instead of
+     * skipping rows, so every page costs the same. Rows without a sort value are not
+     * part of a keyset listing.
+     *
+     * The empty cursor `START` requests the first page of a keyset listing.
+     */
+    public record Cursor(Object after, String id) {
+        public static final Cursor START = new Cursor(null, null);
+
+        public boolean isStart() {
+            return id == null;
+        }
+
+        public String encode() {
+            String value;
+            if (after instanceof Long || after instanceof Integer) value = "i:" + after;
+            else if (after instanceof Double || after instanceof Float) value = "f:" + after;
+            else if (after instanceof LocalDate) value = "d:" + after;
+            else value = "s:" + after;
+            var bytes = (value + "\n" + id).getBytes(StandardCharsets.UTF_8);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        }
+
+        public static Cursor decode(String cursor) {
+            if (cursor.isBlank()) return START;
+            try {
+                var text = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = text.lastIndexOf('\n');
+                var value = text.substring(2, separator);
+                var id = text.substring(separator + 1);
+                Object after = switch (text.substring(0, 2)) {
+                    case "i:" -> Long.parseLong(value);
+                    case "f:" -> Double.parseDouble(value);
+                    case "d:" -> LocalDate.parse(value);
+                    case "s:" -> value;
+                    default -> throw new IllegalArgumentException(text);
+                };
+                return new Cursor(after, id);
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new ValidationException("Invalid cursor", Map.of("cursor", cursor));
+            }
+        }
+    }
+
+    /**
+     * A row of a listing that can be continued from with a keyset cursor.
+     */
+    public interface Sortable {
+        Object sortValue(Sort sort);
+        String cursorId();
+    }
+
+    /**
+     * The cursor for the page after the given one, or null if this is not a keyset listing
+     * or there are no more rows.
+     */
+    public String nextCursor(List<? extends Sortable> page) {
+        if (!keyset() || sort == null || page.isEmpty() || page.size() < limit) return null;
+        var last = page.get(page.size() - 1);
+        return new Cursor(last.sortValue(sort), last.cursorId()).encode();
+    }
+
     public static final EnumSet<Sort> MOVIE_SORT = EnumSet.of(title, released, imdbRating, score);
     public static final EnumSet<Sort> PEOPLE_SORT = EnumSet.of(name, born, movieCount);
     public static final EnumSet<Sort> RATING_SORT = EnumSet.of(rating, timestamp);
@@ -40,12 +127,31 @@ public record Params(String query, Sort sort, Order order, int limit, int skip)
         String q = ctx.queryParam("q");
         Sort sort = Sort.of(ctx.queryParam("sort"));
         Order order = Order.of(ctx.queryParam("order"));
-        int limit = Integer.parseInt(Optional.ofNullable(ctx.queryParam("limit")).orElse("6"));
-        int skip = Integer.parseInt(Optional.ofNullable(ctx.queryParam("skip")).orElse("0"));
+        int limit = intParam(ctx, "limit", 6);
+        int skip = intParam(ctx, "skip", 0);
+        String cursorParam = ctx.queryParam("cursor");
+        Cursor cursor = cursorParam == null ? null : Cursor.decode(cursorParam);
         // Only accept valid sort fields
         if (!validSort.contains(sort)) {
             sort = validSort.iterator().next();
         }
-        return new Params(q, sort, order, limit, skip);
+        return new Params(q, sort, order, limit, skip, cursor);
+    }
+
+    /**
+     * The integer query parameter, or the default when it is not set. A value that is not
+     * an integer is a validation error rather than a server error.
+     */
+    public static int intParam(Context ctx, String name, int defaultValue) {
+        return parseInt(name, ctx.queryParam(name), defaultValue);
+    }
+
+    static int parseInt(String name, String value, int defaultValue) {
+        if (value == null || value.isBlank()) return defaultValue;
+        try {
+            return Integer.parseInt(value.strip());
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Invalid " + name, Map.of(name, value));
+        }
     }
 }
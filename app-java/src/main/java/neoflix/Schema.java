@@ -0,0 +1,66 @@
+package neoflix;
+
+import neoflix.services.FullTextSearch;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.exceptions.Neo4jException;
+import org.neo4j.driver.exceptions.SecurityException;
+
+import java.util.List;
+
+/**
+ * Creates the constraints and indexes the services rely on when the app starts, and waits
+ * for them to come online. Every statement is idempotent, and one that fails, e.g. because
+ * an equivalent index exists under another name, is reported without stopping the app.
+ * A user without schema privileges skips the bootstrap.
+ *
+ * Besides the lookups by id, every stored field a listing can be sorted by has a range
+ * index, so that ORDER BY with LIMIT can read the index in order instead of sorting the
+ * label. The similarity `score` is computed per query and has no index.
+ */
+public class Schema {
+    static final List<String> STATEMENTS = List.of(
+            // lookups
+            "CREATE CONSTRAINT movie_tmdbId IF NOT EXISTS FOR (m:Movie) REQUIRE m.tmdbId IS UNIQUE",
+            "CREATE CONSTRAINT person_tmdbId IF NOT EXISTS FOR (p:Person) REQUIRE p.tmdbId IS UNIQUE",
+            "CREATE CONSTRAINT user_userId IF NOT EXISTS FOR (u:User) REQUIRE u.userId IS UNIQUE",
+            "CREATE CONSTRAINT user_email IF NOT EXISTS FOR (u:User) REQUIRE u.email IS UNIQUE",
+            "CREATE CONSTRAINT genre_name IF NOT EXISTS FOR (g:Genre) REQUIRE g.name IS UNIQUE",
+            // BatchJobs claims a refresh with MERGE, which only cannot create duplicates under a constraint
+            "CREATE CONSTRAINT precomputed_name IF NOT EXISTS FOR (p:Precomputed) REQUIRE p.name IS UNIQUE",
+            // Params.MOVIE_SORT
+            "CREATE RANGE INDEX movie_title IF NOT EXISTS FOR (m:Movie) ON (m.title)",
+            "CREATE RANGE INDEX movie_released IF NOT EXISTS FOR (m:Movie) ON (m.released)",
+            "CREATE RANGE INDEX movie_imdbRating IF NOT EXISTS FOR (m:Movie) ON (m.imdbRating)",
+            // Params.PEOPLE_SORT
+            "CREATE RANGE INDEX person_name IF NOT EXISTS FOR (p:Person) ON (p.name)",
+            "CREATE RANGE INDEX person_born IF NOT EXISTS FOR (p:Person) ON (p.born)",
+            "CREATE RANGE INDEX person_movieCount IF NOT EXISTS FOR (p:Person) ON (p.movieCount)",
+            // Params.RATING_SORT
+            "CREATE RANGE INDEX rated_rating IF NOT EXISTS FOR ()-[r:RATED]-() ON (r.rating)",
+            "CREATE RANGE INDEX rated_timestamp IF NOT EXISTS FOR ()-[r:RATED]-() ON (r.timestamp)",
+            // search
+            "CREATE FULLTEXT INDEX " + FullTextSearch.PERSON_NAME + " IF NOT EXISTS FOR (p:Person) ON EACH [p.name]",
+            "CREATE FULLTEXT INDEX " + FullTextSearch.MOVIE_TITLE + " IF NOT EXISTS FOR (m:Movie) ON EACH [m.title]");
+
+    static void bootstrap(Driver driver, long awaitSeconds) {
+        try (var session = driver.session()) {
+            for (String statement : STATEMENTS) {
+                try {
+                    session.run(statement).consume();
+                } catch (SecurityException e) {
+                    System.err.printf("Skipping the schema bootstrap: %s%n", e.getMessage());
+                    return;
+                } catch (Neo4jException e) {
+                    System.err.printf("Could not run %s: %s%n", statement, e.getMessage());
+                }
+            }
+            try {
+                // indexes are populated in the background, a new one is not used before it is online
+                session.run("CALL db.awaitIndexes($timeout)", Values.parameters("timeout", awaitSeconds)).consume();
+            } catch (Neo4jException e) {
+                System.err.printf("Indexes not online after %ds: %s%n", awaitSeconds, e.getMessage());
+            }
+        }
+    }
+}
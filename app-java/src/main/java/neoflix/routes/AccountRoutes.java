@@ -5,8 +5,10 @@ import com.google.gson.Gson;
 import io.javalin.apibuilder.EndpointGroup;
 import neoflix.Params;
 import neoflix.AppUtils;
+import neoflix.GsonUtils;
 import neoflix.services.FavoriteService;
 import neoflix.services.RatingService;
+import neoflix.services.Movie;
 import org.neo4j.driver.Driver;
 
 import java.util.Map;
@@ -31,7 +33,7 @@ public class AccountRoutes implements EndpointGroup {
          *
          * This route simply returns the claims made in the JWT token
          */
-        get("", ctx -> ctx.result(gson.toJson(ctx.attribute("user"))));
+        get("", ctx -> GsonUtils.writeJson(ctx, gson, ctx.attribute("user")));
 
         /*
          * @GET /account/favorites/
@@ -42,8 +44,9 @@ public class AccountRoutes implements EndpointGroup {
         // tag::list[]
         get("/favorites", ctx -> {
             var userId = AppUtils.getUserId(ctx);
-            var favorites = favoriteService.all(userId, Params.parse(ctx, Params.MOVIE_SORT));
-            ctx.result(gson.toJson(favorites));
+            var params = Params.parse(ctx, Params.MOVIE_SORT);
+            var favorites = favoriteService.allAsync(userId, params, Movie::from);
+            GsonUtils.writePageAsync(ctx, gson, params, favorites);
         });
         // end::list[]
 
@@ -56,8 +59,8 @@ public class AccountRoutes implements EndpointGroup {
         // tag::add[]
         post("/favorites/{id}", ctx -> {
             var userId = AppUtils.getUserId(ctx);
-            var newFavorite = favoriteService.add(userId, ctx.pathParam("id"));
-            ctx.result(gson.toJson(newFavorite));
+            var newFavorite = favoriteService.add(userId, ctx.pathParam("id"), Movie::from);
+            GsonUtils.writeJson(ctx, gson, newFavorite);
         });
         // end::add[]
 
@@ -70,8 +73,8 @@ public class AccountRoutes implements EndpointGroup {
         // tag::delete[]
         delete("/favorites/{id}", ctx -> {
             var userId = AppUtils.getUserId(ctx); // TODO
-            var deletedFavorite = favoriteService.remove(userId, ctx.pathParam("id"));
-            ctx.result(gson.toJson(deletedFavorite));
+            var deletedFavorite = favoriteService.remove(userId, ctx.pathParam("id"), Movie::from);
+            GsonUtils.writeJson(ctx, gson, deletedFavorite);
         });
         // end::delete[]
 
@@ -86,8 +89,8 @@ public class AccountRoutes implements EndpointGroup {
         post("/ratings/{id}", ctx -> {
             var userId = AppUtils.getUserId(ctx); // TODO
             var value = Integer.parseInt(gson.fromJson(ctx.body(), Map.class).get("rating").toString());
-            var rating = ratingService.add(userId, ctx.pathParam("id"), value);
-            ctx.result(gson.toJson(rating));
+            var rating = ratingService.add(userId, ctx.pathParam("id"), value, Movie::from);
+            GsonUtils.writeJson(ctx, gson, rating);
         });
         // end::rating[]
     }
@@ -3,6 +3,7 @@ package neoflix.routes;
 import com.google.gson.Gson;
 
 import io.javalin.apibuilder.EndpointGroup;
+import neoflix.GsonUtils;
 import neoflix.services.AuthService;
 import org.neo4j.driver.Driver;
 
@@ -35,7 +36,7 @@ public class AuthRoutes implements EndpointGroup {
             if (user != null) {
                 ctx.attribute("user", user.get("userId"));
             }
-            ctx.result(gson.toJson(user));
+            GsonUtils.writeJson(ctx, gson, user);
         });
         // end::login[]
 
@@ -50,7 +51,7 @@ public class AuthRoutes implements EndpointGroup {
         // tag::register[]
         post("/register", ctx -> {
             var userData = gson.fromJson(ctx.body(), UserData.class);
-            ctx.result(gson.toJson(authService.register(userData.email, userData.password, userData.name)));
+            GsonUtils.writeJson(ctx, gson, authService.register(userData.email, userData.password, userData.name));
         });
         // end::register[]
     }
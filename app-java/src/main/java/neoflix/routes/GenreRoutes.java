@@ -5,8 +5,12 @@ import com.google.gson.Gson;
 import io.javalin.apibuilder.EndpointGroup;
 import neoflix.Params;
 import neoflix.AppUtils;
+import neoflix.GsonUtils;
+import neoflix.services.GenreCatalog;
 import neoflix.services.GenreService;
 import neoflix.services.MovieService;
+import neoflix.services.Genre;
+import neoflix.services.Movie;
 import org.neo4j.driver.Driver;
 
 import static io.javalin.apibuilder.ApiBuilder.get;
@@ -29,8 +33,11 @@ public class GenreRoutes implements EndpointGroup {
          *
          * This route should retrieve a full list of Genres from the
          * database along with a poster and movie count.
+         * The genres are served from memory and read again once they are older than
+         * GENRE_CATALOG_TTL, and tagged for conditional requests with `If-None-Match`.
          */
-        get("", ctx -> ctx.result(gson.toJson(genreService.all())));
+        get("", ctx -> GsonUtils.writeJsonAsync(ctx, gson, genreService.catalogAsync(),
+                GenreCatalog.Snapshot::etag, catalog -> catalog.all(Genre::from)));
 
         /*
          * @GET /genres/{name}
@@ -39,7 +46,11 @@ public class GenreRoutes implements EndpointGroup {
          * that matches the {name} URL parameter.  If the genre is not found,
          * a 404 should be thrown.
          */
-        get("/{name}", ctx -> ctx.result(gson.toJson(genreService.find(ctx.pathParam("name")))));
+        get("/{name}", ctx -> {
+            String name = ctx.pathParam("name");
+            GsonUtils.writeJsonAsync(ctx, gson, genreService.catalogAsync(), GenreCatalog.Snapshot::etag,
+                    catalog -> catalog.find(name, Genre::from).orElseThrow(() -> new RuntimeException("Genre " + name + " not found")));
+        });
 
         /**
          * @GET /genres/{name}/movies
@@ -49,8 +60,9 @@ public class GenreRoutes implements EndpointGroup {
          */
         get("/{name}/movies", ctx -> {
             var userId = AppUtils.getUserId(ctx);
-            var movies = movieService.byGenre(ctx.pathParam("name"), Params.parse(ctx, Params.MOVIE_SORT), userId);
-            ctx.result(gson.toJson(movies));
+            var params = Params.parse(ctx, Params.MOVIE_SORT);
+            var movies = movieService.byGenreAsync(ctx.pathParam("name"), params, userId, Movie::from);
+            GsonUtils.writePageAsync(ctx, gson, params, movies);
         });
     }
 
@@ -5,12 +5,13 @@ import com.google.gson.Gson;
 import io.javalin.apibuilder.EndpointGroup;
 import neoflix.Params;
 import neoflix.AppUtils;
+import neoflix.GsonUtils;
 import neoflix.services.MovieService;
 import neoflix.services.RatingService;
+import neoflix.services.Movie;
+import neoflix.services.Rating;
 import org.neo4j.driver.Driver;
 
-import java.util.Map;
-
 import static io.javalin.apibuilder.ApiBuilder.get;
 
 public class MovieRoutes implements EndpointGroup {
@@ -33,13 +34,19 @@ public class MovieRoutes implements EndpointGroup {
          *
          * This route should return a paginated list of movies, sorted by the
          * `sort` query parameter,
+         * With `Accept: application/x-ndjson` the movies are streamed as newline delimited JSON.
          */
         // tag::list[]
         get("",  ctx -> {
             var params = Params.parse(ctx, Params.MOVIE_SORT); // <2>
+            if (movieService.searches(params)) params = params.withoutCursor();
             String userId = AppUtils.getUserId(ctx);  // <3>
-            var movies = movieService.all(params, userId);  // <4>
-            ctx.result(gson.toJson(movies));
+            if (GsonUtils.acceptsNdjson(ctx)) {
+                GsonUtils.writeNdjson(ctx, gson, movieService.allStream(params, userId, Movie::from));
+                return;
+            }
+            var movies = movieService.allAsync(params, userId, Movie::from);  // <4>
+            GsonUtils.writePageAsync(ctx, gson, params, movies);
         });
         // end::list[]
 
@@ -51,8 +58,8 @@ public class MovieRoutes implements EndpointGroup {
         // tag::get[]
         get("/{id}", ctx -> {
             String userId = AppUtils.getUserId(ctx);
-            Map<String, Object> movie = movieService.findById(ctx.pathParam("id"), userId);
-            ctx.result(gson.toJson(movie));
+            var movie = movieService.findByIdAsync(ctx.pathParam("id"), userId, Movie::from);
+            GsonUtils.writeJsonAsync(ctx, gson, movie);
         });
 
         /*
@@ -61,9 +68,17 @@ public class MovieRoutes implements EndpointGroup {
          *
          * This route should return a paginated list of ratings for a movie, ordered by either
          * the rating itself or when the review was created.
+         * With `Accept: application/x-ndjson` the ratings are streamed as newline delimited JSON.
          */
         // tag::ratings[]
-        get("/{id}/ratings", ctx -> ctx.result(gson.toJson(ratingService.forMovie(ctx.pathParam("id"), Params.parse(ctx, Params.RATING_SORT)))));
+        get("/{id}/ratings", ctx -> {
+            var params = Params.parse(ctx, Params.RATING_SORT);
+            if (GsonUtils.acceptsNdjson(ctx)) {
+                GsonUtils.writeNdjson(ctx, gson, ratingService.forMovieStream(ctx.pathParam("id"), params, Rating::from));
+                return;
+            }
+            GsonUtils.writePageAsync(ctx, gson, params, ratingService.forMovieAsync(ctx.pathParam("id"), params, Rating::from));
+        });
         // end::ratings[]
 
         /*
@@ -71,12 +86,17 @@ public class MovieRoutes implements EndpointGroup {
          *
          * This route should return a paginated list of similar movies, ordered by the
          * similarity score in descending order.
+         * Precomputed similar movies come with their refresh time in `X-Similar-Refreshed-At`.
          */
         // tag::similar[]
         get("/{id}/similar", ctx -> {
             var userId = AppUtils.getUserId(ctx);
-            var movies = movieService.getSimilarMovies(ctx.pathParam("id"), Params.parse(ctx, Params.MOVIE_SORT), userId);
-            ctx.result(gson.toJson(movies));
+            var params = Params.parse(ctx, Params.MOVIE_SORT);
+            var movies = movieService.getSimilarMoviesRefreshedAsync(ctx.pathParam("id"), params, userId, Movie::from).thenApply(similar -> {
+                similar.refreshedAt().ifPresent(at -> ctx.header("X-Similar-Refreshed-At", at.toString()));
+                return similar.value();
+            });
+            GsonUtils.writeJsonAsync(ctx, gson, movies);
         });
         // end::similar[]
     }
@@ -5,8 +5,11 @@ import com.google.gson.Gson;
 import io.javalin.apibuilder.EndpointGroup;
 import neoflix.Params;
 import neoflix.AppUtils;
+import neoflix.GsonUtils;
 import neoflix.services.MovieService;
 import neoflix.services.PeopleService;
+import neoflix.services.Movie;
+import neoflix.services.Person;
 import org.neo4j.driver.Driver;
 
 import static io.javalin.apibuilder.ApiBuilder.get;
@@ -28,23 +31,40 @@ public class PeopleRoutes implements EndpointGroup {
          * @GET /people/
          *
          * This route should return a paginated list of People from the database
+         * With `Accept: application/x-ndjson` the people are streamed as newline delimited JSON.
          */
-        get("", ctx -> ctx.result(gson.toJson(peopleService.all(Params.parse(ctx, Params.PEOPLE_SORT)))));
+        get("", ctx -> {
+            var params = Params.parse(ctx, Params.PEOPLE_SORT);
+            if (peopleService.searches(params)) params = params.withoutCursor();
+            if (GsonUtils.acceptsNdjson(ctx)) {
+                GsonUtils.writeNdjson(ctx, gson, peopleService.allStream(params, Person::from));
+                return;
+            }
+            GsonUtils.writePageAsync(ctx, gson, params, peopleService.allAsync(params, Person::from));
+        });
 
         /*
          * @GET /people/{id}
          *
          * This route should the properties of a Person based on their tmdbId
          */
-        get("/{id}", ctx -> ctx.result(gson.toJson(peopleService.findById(ctx.pathParam("id")))));
+        get("/{id}", ctx -> GsonUtils.writeJsonAsync(ctx, gson, peopleService.findByIdAsync(ctx.pathParam("id"), Person::from)));
 
         /*
          * @GET /people/{id}/similar
          *
          * This route should return a paginated list of similar people to the person
          * with the {id} supplied in the route params.
+         * Precomputed co-workers come with their refresh time in `X-Similar-Refreshed-At`.
          */
-        get("/{id}/similar", ctx -> ctx.result(gson.toJson(peopleService.getSimilarPeople(ctx.pathParam("id"), Params.parse(ctx, Params.PEOPLE_SORT)))));
+        get("/{id}/similar", ctx -> {
+            var params = Params.parse(ctx, Params.PEOPLE_SORT);
+            var people = peopleService.getSimilarPeopleRefreshedAsync(ctx.pathParam("id"), params, Person::from).thenApply(similar -> {
+                similar.refreshedAt().ifPresent(at -> ctx.header("X-Similar-Refreshed-At", at.toString()));
+                return similar.value();
+            });
+            GsonUtils.writeJsonAsync(ctx, gson, people);
+        });
 
         /*
          * @GET /people/{id}/acted
@@ -54,8 +74,9 @@ public class PeopleRoutes implements EndpointGroup {
          */
         get("/{id}/acted", ctx -> {
             var userId = AppUtils.getUserId(ctx);
-            var movies = movieService.getForActor(ctx.pathParam("id"), Params.parse(ctx, Params.MOVIE_SORT), userId);
-            ctx.result(gson.toJson(movies));
+            var params = Params.parse(ctx, Params.MOVIE_SORT);
+            var movies = movieService.getForActorAsync(ctx.pathParam("id"), params, userId, Movie::from);
+            GsonUtils.writePageAsync(ctx, gson, params, movies);
         });
 
         /*
@@ -66,8 +87,9 @@ public class PeopleRoutes implements EndpointGroup {
          */
         get("/{id}/directed", ctx -> {
             var userId = AppUtils.getUserId(ctx);
-            var movies = movieService.getForDirector(ctx.pathParam("id"), Params.parse(ctx, Params.MOVIE_SORT), userId);
-            ctx.result(gson.toJson(movies));
+            var params = Params.parse(ctx, Params.MOVIE_SORT);
+            var movies = movieService.getForDirectorAsync(ctx.pathParam("id"), params, userId, Movie::from);
+            GsonUtils.writePageAsync(ctx, gson, params, movies);
         });
     }
 
@@ -0,0 +1,38 @@
+package neoflix.routes;
+
+import com.google.gson.Gson;
+
+import io.javalin.apibuilder.EndpointGroup;
+import neoflix.GsonUtils;
+import neoflix.Params;
+import neoflix.services.SearchService;
+import org.neo4j.driver.Driver;
+
+import static io.javalin.apibuilder.ApiBuilder.get;
+
+public class SearchRoutes implements EndpointGroup {
+    private static final int MAX_LIMIT = 50;
+
+    private final Gson gson;
+    private final SearchService searchService;
+
+    public SearchRoutes(Driver driver, Gson gson) {
+        this.gson = gson;
+        searchService = new SearchService(driver);
+    }
+
+    @Override
+    public void addEndpoints() {
+        /*
+         * @GET /search/suggest
+         *
+         * This route returns up to `limit` (default 10) person names and movie titles with
+         * a word starting with the `q` parameter, for typeahead. It is answered from memory.
+         */
+        get("/suggest", ctx -> {
+            int limit = Math.max(1, Math.min(Params.intParam(ctx, "limit", 10), MAX_LIMIT));
+            var suggestions = searchService.suggest(ctx.queryParam("q"), limit);
+            GsonUtils.writeJson(ctx, gson, suggestions);
+        });
+    }
+}
@@ -0,0 +1,76 @@
+package neoflix.routes;
+
+import com.google.gson.Gson;
+
+import io.javalin.apibuilder.EndpointGroup;
+import neoflix.GsonUtils;
+import neoflix.Metrics;
+import org.neo4j.driver.ConnectionPoolMetrics;
+import org.neo4j.driver.Driver;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.javalin.apibuilder.ApiBuilder.get;
+
+public class StatusRoutes implements EndpointGroup {
+    private final Gson gson;
+    private final Driver driver;
+
+    public StatusRoutes(Driver driver, Gson gson) {
+        this.driver = driver;
+        this.gson = gson;
+    }
+
+    @Override
+    public void addEndpoints() {
+        /*
+         * @GET /status
+         *
+         * This route returns whether the driver is connected, the metrics of its
+         * connection pools, to size the pool against the server's request threads,
+         * and the timings of the statements run by the services.
+         */
+        get("", ctx -> {
+            var status = new LinkedHashMap<String, Object>();
+            status.put("driver", driver != null);
+            status.put("metricsEnabled", driver != null && driver.isMetricsEnabled());
+            status.put("pools", pools());
+            status.put("queries", Metrics.querySummary());
+            GsonUtils.writeJson(ctx, gson, status);
+        });
+
+        /*
+         * @GET /status/metrics
+         *
+         * The connection pool metrics and the request latency histograms per route group
+         * in the Prometheus text format.
+         */
+        get("/metrics", ctx -> ctx.contentType(Metrics.CONTENT_TYPE).result(Metrics.prometheus(driver)));
+    }
+
+    private List<Map<String, Object>> pools() {
+        if (driver == null || !driver.isMetricsEnabled()) return List.of();
+        return driver.metrics().connectionPoolMetrics().stream().map(StatusRoutes::pool).toList();
+    }
+
+    private static Map<String, Object> pool(ConnectionPoolMetrics pool) {
+        var metrics = new LinkedHashMap<String, Object>();
+        metrics.put("id", pool.id());
+        metrics.put("inUse", pool.inUse());
+        metrics.put("idle", pool.idle());
+        metrics.put("creating", pool.creating());
+        metrics.put("created", pool.created());
+        metrics.put("failedToCreate", pool.failedToCreate());
+        metrics.put("closed", pool.closed());
+        metrics.put("acquiring", pool.acquiring());
+        metrics.put("acquired", pool.acquired());
+        metrics.put("timedOutToAcquire", pool.timedOutToAcquire());
+        metrics.put("totalAcquisitionTime", pool.totalAcquisitionTime());
+        metrics.put("totalConnectionTime", pool.totalConnectionTime());
+        metrics.put("totalInUseTime", pool.totalInUseTime());
+        metrics.put("totalInUseCount", pool.totalInUseCount());
+        return metrics;
+    }
+}
@@ -0,0 +1,90 @@
+package neoflix.services;
+
+import neoflix.Metrics;
+import org.neo4j.driver.Query;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.async.AsyncSession;
+import org.neo4j.driver.async.AsyncTransactionContext;
+import org.neo4j.driver.async.ResultCursor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The non-blocking counterpart of DbUtils, running queries on an AsyncSession.
+ *
+ * The methods return as soon as the work is submitted and close the session once the
+ * returned future completes, so no thread waits for the database in the meantime.
+ * Mapping functions run on the driver's event loop threads and must not block.
+ */
+public class AsyncDbUtils {
+
+    public <T> CompletionStage<List<T>> run(AsyncTransactionContext tx, String name, Query query, Function<Record, T> mappingFunc) {
+        return timed(tx, name, query, cursor -> cursor.listAsync(mappingFunc));
+    }
+
+    public <T> CompletableFuture<List<T>> readAll(AsyncSession session, String name, Query query, Function<Record, T> mappingFunc) {
+        return closing(session, session.executeReadAsync(tx -> timed(tx, name, query, cursor -> cursor.listAsync(mappingFunc))));
+    }
+
+    /**
+     * Reads all records of a query whose parameters are only known within the transaction.
+     */
+    public <T> CompletableFuture<List<T>> readAll(AsyncSession session, String name, Query query,
+                                                  Function<AsyncTransactionContext, CompletionStage<Map<String, Object>>> parameters,
+                                                  Function<Record, T> mappingFunc) {
+        return closing(session, session.executeReadAsync(tx -> parameters.apply(tx)
+                .thenCompose(values -> timed(tx, name, query.withParameters(values), cursor -> cursor.listAsync(mappingFunc)))));
+    }
+
+    /**
+     * Hands the records to the consumer as they arrive, without collecting them.
+     */
+    public CompletableFuture<Void> forEach(AsyncSession session, String name, Query query, Consumer<Record> consumer) {
+        return closing(session, session.executeReadAsync(tx -> timed(tx, name, query,
+                cursor -> cursor.forEachAsync(consumer).thenApply(summary -> (Void) null))));
+    }
+
+    public <T> CompletableFuture<Optional<T>> readOne(AsyncSession session, String name, Query query, Function<Record, T> mappingFunc) {
+        return closing(session, session.executeReadAsync(tx -> timed(tx, name, query, cursor -> first(cursor, mappingFunc))));
+    }
+
+    public <T> CompletableFuture<Optional<T>> readOne(AsyncSession session, String name, Query query,
+                                                      Function<AsyncTransactionContext, CompletionStage<Map<String, Object>>> parameters,
+                                                      Function<Record, T> mappingFunc) {
+        return closing(session, session.executeReadAsync(tx -> parameters.apply(tx)
+                .thenCompose(values -> timed(tx, name, query.withParameters(values), cursor -> first(cursor, mappingFunc)))));
+    }
+
+    private static <T> CompletionStage<Optional<T>> first(ResultCursor cursor, Function<Record, T> mappingFunc) {
+        return cursor.nextAsync().thenApply(record -> Optional.ofNullable(record).map(mappingFunc));
+    }
+
+    /**
+     * Runs the query and reads its result, recording the same timings as DbUtils.
+     */
+    private static <T> CompletionStage<T> timed(AsyncTransactionContext tx, String name, Query query,
+                                                Function<ResultCursor, CompletionStage<T>> reader) {
+        long start = System.nanoTime();
+        return tx.runAsync(query).thenCompose(cursor -> reader.apply(cursor)
+                .thenCompose(value -> cursor.consumeAsync().thenApply(summary -> {
+                    Metrics.recordQuery(name, System.nanoTime() - start,
+                            summary.resultAvailableAfter(TimeUnit.NANOSECONDS), summary.resultConsumedAfter(TimeUnit.NANOSECONDS));
+                    return value;
+                })));
+    }
+
+    private static <T> CompletableFuture<T> closing(AsyncSession session, CompletionStage<T> work) {
+        return work.handle((value, error) -> session.closeAsync().thenCompose(closed -> error == null
+                        ? CompletableFuture.completedFuture(value)
+                        : CompletableFuture.<T>failedFuture(error)))
+                .thenCompose(Function.identity())
+                .toCompletableFuture();
+    }
+}
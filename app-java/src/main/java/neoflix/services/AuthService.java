@@ -16,7 +16,7 @@ public class AuthService {
 
     private final Driver driver;
     private final List<Map<String, Object>> users;
-    private String jwtSecret;
+    private final AuthUtils authUtils;
 
     private DbUtils dbUtils;
 
@@ -29,7 +29,7 @@ public class AuthService {
      */
     public AuthService(Driver driver, String jwtSecret) {
         this.driver = driver;
-        this.jwtSecret = jwtSecret;
+        this.authUtils = AuthUtils.forSecret(jwtSecret);
         this.users = AppUtils.loadFixtureList("users");
         this.dbUtils = new DbUtils();
     }
@@ -58,7 +58,7 @@ public class AuthService {
                         return u {.userId, .name, .email } as user
                     """;
             Function<Record, Map<String, Object>> userMappingFunc = row -> row.get("user").asMap();
-            var userOptional = dbUtils.readOne(session, userExistQuery,
+            var userOptional = dbUtils.readOne(session, "AuthService.register", userExistQuery,
                     Map.of("email", email),
                     userMappingFunc);
             if (userOptional.isPresent()) {
@@ -78,10 +78,10 @@ public class AuthService {
             var userValueMap = Map.<String,Object>of("email",email, "name",name,
                     "userId", String.valueOf(email.hashCode()), "encrypted", encrypted);
 
-            var createdUser = dbUtils.write(session, statement, userValueMap, userMappingFunc);
+            var createdUser = dbUtils.write(session, "AuthService.register", statement, userValueMap, userMappingFunc);
 
             String sub = (String) createdUser.get("userId");
-            String token = AuthUtils.sign(sub,userToClaims(createdUser), jwtSecret);
+            String token = authUtils.sign(sub,userToClaims(createdUser));
 
             return userWithToken(createdUser, token);
         } catch(Neo4jException e) {
@@ -126,7 +126,7 @@ public class AuthService {
                         RETURN u
                     """;
             Function<Record, Map<String, Object>> userMappingFunc = row -> row.get("u").asMap();
-            var userOptional = dbUtils.readOne(session, userExistQuery,
+            var userOptional = dbUtils.readOne(session, "AuthService.authenticate", userExistQuery,
                     Map.of("email", email),
                     userMappingFunc);
             if (userOptional.isEmpty()) {
@@ -139,7 +139,7 @@ public class AuthService {
             }
             // tag::return[]
             String sub = (String) user.get("userId");
-            String token = AuthUtils.sign(sub, userToClaims(user), jwtSecret);
+            String token = authUtils.sign(sub, userToClaims(user));
             return userWithToken(user, token);
         }
         // end::return[]
@@ -0,0 +1,266 @@
+package neoflix.services;
+
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Query;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Values;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Maintenance jobs that update the whole graph in batches.
+ *
+ * They run as auto-commit transactions so that `CALL { ... } IN TRANSACTIONS` can commit
+ * every batch on its own, and only touch nodes that still need the update, so they can
+ * be run again at any time.
+ *
+ * Jobs that precompute data record when they last ran on a `:Precomputed {name}` node.
+ * The `IfStale` variants first claim the node in a write transaction, so of several
+ * instances starting together only one runs the refresh.
+ */
+public class BatchJobs {
+    public static final String SIMILAR_MOVIES = "similarMovies";
+    public static final String WORKED_WITH = "workedWith";
+
+    // when the precomputed data was last refreshed, looked up at most once a minute
+    private record Refreshed(Optional<ZonedDateTime> at, long checkedAt) {}
+    private static final long REFRESHED_CHECK_MILLIS = 60_000;
+    private static final Map<String, Refreshed> refreshed = new ConcurrentHashMap<>();
+    private static final AsyncDbUtils asyncDbUtils = new AsyncDbUtils();
+
+    private static final String REFRESHED_AT_QUERY = """
+            MATCH (p:Precomputed {name: $name})
+            RETURN p.refreshedAt AS refreshedAt
+            """;
+
+    private final Driver driver;
+
+    public BatchJobs(Driver driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * Computes `ratingCount`, `ratingSum` and `avgRating` for the movies that do not have them
+     * yet. RatingService.add keeps them up to date from then on.
+     *
+     * @return the number of movies updated
+     */
+    public int backfillRatingAggregates(int batchSize) {
+        try (var session = driver.session()) {
+            int missing = session.run("MATCH (m:Movie) WHERE m.ratingCount IS NULL RETURN count(m) AS count")
+                    .single().get("count").asInt();
+            if (missing == 0) return 0;
+            session.run("""
+                    MATCH (m:Movie) WHERE m.ratingCount IS NULL
+                    CALL {
+                      WITH m
+                      // lock the movie, a rating added meanwhile has already set the counters
+                      SET m._lock = true
+                      REMOVE m._lock
+                      WITH m WHERE m.ratingCount IS NULL
+                      OPTIONAL MATCH (m)<-[r:RATED]-()
+                      WITH m, count(r) AS ratingCount, sum(r.rating) AS ratingSum
+                      SET m.ratingCount = ratingCount,
+                          m.ratingSum = ratingSum,
+                          m.avgRating = CASE WHEN ratingCount = 0 THEN null ELSE toFloat(ratingSum) / ratingCount END
+                    } IN TRANSACTIONS OF $batchSize ROWS
+                    """, Values.parameters("batchSize", batchSize)).consume();
+            return missing;
+        }
+    }
+
+    /**
+     * Computes `actedCount`, `directedCount` and `movieCount` for the people that do not have
+     * them yet, for graphs loaded before the import kept them up to date. `movieCount` counts
+     * a movie that was both acted in and directed once.
+     *
+     * @return the number of people updated
+     */
+    public int backfillPersonCounts(int batchSize) {
+        try (var session = driver.session()) {
+            int missing = session.run("MATCH (p:Person) WHERE p.movieCount IS NULL RETURN count(p) AS count")
+                    .single().get("count").asInt();
+            if (missing == 0) return 0;
+            session.run("""
+                    MATCH (p:Person) WHERE p.movieCount IS NULL
+                    CALL {
+                      WITH p, count { (p)-[:ACTED_IN]->() } AS acted, count { (p)-[:DIRECTED]->() } AS directed
+                      SET p.actedCount = acted,
+                          p.directedCount = directed,
+                          p.movieCount = acted + directed - count { (p)-[:ACTED_IN]->()<-[:DIRECTED]-(p) }
+                    } IN TRANSACTIONS OF $batchSize ROWS
+                    """, Values.parameters("batchSize", batchSize)).consume();
+            return missing;
+        }
+    }
+
+    /**
+     * Replaces the `:SIMILAR {score}` relationships of every movie with its `topK` most similar
+     * movies, scored like the live query of MovieService.getSimilarMovies, and records the
+     * time of the refresh.
+     */
+    public ZonedDateTime refreshSimilarMovies(int topK, int batchSize) {
+        try (var session = driver.session()) {
+            session.run("""
+                    MATCH (m:Movie)
+                    CALL {
+                      WITH m
+                      OPTIONAL MATCH (m)-[old:SIMILAR]->()
+                      DELETE old
+                      WITH DISTINCT m
+                      MATCH (m)-[:IN_GENRE|ACTED_IN|DIRECTED]->()<-[:IN_GENRE|ACTED_IN|DIRECTED]-(other)
+                      WHERE other.imdbRating IS NOT NULL
+                      WITH m, other, count(*) AS inCommon
+                      WITH m, other, other.imdbRating * inCommon AS score
+                      ORDER BY score DESC
+                      WITH m, collect({movie: other, score: score})[0..$topK] AS similar
+                      UNWIND similar AS s
+                      WITH m, s.movie AS other, s.score AS score
+                      CREATE (m)-[:SIMILAR {score: score}]->(other)
+                    } IN TRANSACTIONS OF $batchSize ROWS
+                    """, Values.parameters("topK", topK, "batchSize", batchSize)).consume();
+            return stamp(session, SIMILAR_MOVIES);
+        }
+    }
+
+    /**
+     * Refreshes the similar movies unless that was done within `maxAge` or another instance
+     * is refreshing them.
+     */
+    public Optional<ZonedDateTime> refreshSimilarMoviesIfStale(Duration maxAge, int topK, int batchSize) {
+        return refreshIfStale(SIMILAR_MOVIES, maxAge, () -> refreshSimilarMovies(topK, batchSize));
+    }
+
+    /**
+     * Replaces the `:WORKED_WITH {weight}` relationships between people who acted in or directed
+     * the same movies. The weight is the number of credits they share, counted like the
+     * `inCommon` list of PeopleService.getSimilarPeople. There is one relationship per pair,
+     * from the person with the lower tmdbId, to be matched without direction.
+     */
+    public ZonedDateTime refreshWorkedWith(int batchSize) {
+        try (var session = driver.session()) {
+            session.run("""
+                    MATCH (a:Person)
+                    CALL {
+                      WITH a
+                      OPTIONAL MATCH (a)-[old:WORKED_WITH]->()
+                      DELETE old
+                      WITH DISTINCT a
+                      MATCH (a)-[:ACTED_IN|DIRECTED]->()<-[:ACTED_IN|DIRECTED]-(b:Person)
+                      WHERE a.tmdbId < b.tmdbId
+                      WITH a, b, count(*) AS weight
+                      CREATE (a)-[:WORKED_WITH {weight: weight}]->(b)
+                    } IN TRANSACTIONS OF $batchSize ROWS
+                    """, Values.parameters("batchSize", batchSize)).consume();
+            return stamp(session, WORKED_WITH);
+        }
+    }
+
+    public Optional<ZonedDateTime> refreshWorkedWithIfStale(Duration maxAge, int batchSize) {
+        return refreshIfStale(WORKED_WITH, maxAge, () -> refreshWorkedWith(batchSize));
+    }
+
+    private Optional<ZonedDateTime> refreshIfStale(String name, Duration maxAge, Supplier<ZonedDateTime> refresh) {
+        if (!claim(name, maxAge)) return Optional.empty();
+        try {
+            return Optional.of(refresh.get());
+        } catch (RuntimeException e) {
+            release(name);
+            throw e;
+        }
+    }
+
+    /**
+     * Claims the refresh unless the data was refreshed within `maxAge` or another instance
+     * claimed it. The node is locked before it is read, so two instances checking at the same
+     * time cannot both claim it. A claim older than `maxAge` is taken over, the instance
+     * that made it is assumed to have stopped.
+     */
+    private boolean claim(String name, Duration maxAge) {
+        try (var session = driver.session()) {
+            return session.executeWrite(tx -> tx.run("""
+                    MERGE (p:Precomputed {name: $name})
+                    // lock the node before reading when it was refreshed
+                    SET p._lock = true
+                    REMOVE p._lock
+                    WITH p, datetime() - duration({seconds: $maxAge}) AS stale
+                    WHERE coalesce(p.refreshedAt < stale, true)
+                      AND coalesce(p.refreshingSince < stale, true)
+                    SET p.refreshingSince = datetime()
+                    RETURN count(p) AS claimed
+                    """, Values.parameters("name", name, "maxAge", maxAge.toSeconds())).single().get("claimed").asLong() > 0);
+        }
+    }
+
+    private void release(String name) {
+        try (var session = driver.session()) {
+            session.executeWrite(tx -> tx.run("""
+                    MATCH (p:Precomputed {name: $name})
+                    REMOVE p.refreshingSince
+                    """, Values.parameters("name", name)).consume());
+        }
+    }
+
+    /**
+     * Records the time of a refresh and releases the claim, the services see it without
+     * waiting for their next check.
+     */
+    private static ZonedDateTime stamp(Session session, String name) {
+        var refreshedAt = session.run("""
+                MERGE (p:Precomputed {name: $name})
+                SET p.refreshedAt = datetime()
+                REMOVE p.refreshingSince
+                RETURN p.refreshedAt AS refreshedAt
+                """, Values.parameters("name", name)).single().get("refreshedAt").asZonedDateTime();
+        refreshed.put(name, new Refreshed(Optional.of(refreshedAt), System.currentTimeMillis()));
+        return refreshedAt;
+    }
+
+    /**
+     * When the precomputed data was last refreshed, empty if it never was.
+     */
+    static Optional<ZonedDateTime> lastRefresh(Driver driver, String name) {
+        var last = refreshed.get(name);
+        long now = System.currentTimeMillis();
+        if (last == null || now - last.checkedAt() > REFRESHED_CHECK_MILLIS) {
+            try (var session = driver.session()) {
+                last = new Refreshed(refreshedAt(session, name), now);
+                refreshed.put(name, last);
+            }
+        }
+        return last.at();
+    }
+
+    /**
+     * Like lastRefresh, reading the node on an AsyncSession when the last check is too old.
+     */
+    static CompletableFuture<Optional<ZonedDateTime>> lastRefreshAsync(Driver driver, String name) {
+        var last = refreshed.get(name);
+        long now = System.currentTimeMillis();
+        if (last != null && now - last.checkedAt() <= REFRESHED_CHECK_MILLIS) {
+            return CompletableFuture.completedFuture(last.at());
+        }
+        return asyncDbUtils.readOne(driver.asyncSession(), "BatchJobs.lastRefreshAsync",
+                        new Query(REFRESHED_AT_QUERY, Values.parameters("name", name)),
+                        row -> row.get("refreshedAt"))
+                .thenApply(row -> {
+                    var at = row.filter(value -> !value.isNull()).map(value -> value.asZonedDateTime());
+                    refreshed.put(name, new Refreshed(at, now));
+                    return at;
+                });
+    }
+
+    private static Optional<ZonedDateTime> refreshedAt(Session session, String name) {
+        return session.executeRead(tx -> tx.run(REFRESHED_AT_QUERY, Values.parameters("name", name)).list())
+                .stream().findFirst()
+                .map(row -> row.get("refreshedAt"))
+                .filter(value -> !value.isNull())
+                .map(value -> value.asZonedDateTime());
+    }
+}
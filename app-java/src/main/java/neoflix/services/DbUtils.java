@@ -1,5 +1,6 @@
 package neoflix.services;
 
+import neoflix.Metrics;
 import neoflix.Params;
 import neoflix.ValidationException;
 import org.neo4j.driver.*;
@@ -10,47 +11,70 @@ import org.neo4j.driver.exceptions.NoSuchRecordException;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
+/**
+ * Runs queries on a Session or in a transaction. Every method takes the name the timings
+ * of the statement are recorded under, the service method running it, e.g. `MovieService.all`.
+ */
 public class DbUtils {
 
-    public <T> List<T> run(TransactionContext tx, String cypherQuery, Map<String, Object> paramMap, Function<Record, T> mappingFunc) {
-        return tx.run(cypherQuery, paramMap).list(mappingFunc);
+    public <T> List<T> run(TransactionContext tx, String name, String cypherQuery, Map<String, Object> paramMap, Function<Record, T> mappingFunc) {
+        return timed(tx, name, new Query(cypherQuery, paramMap), res -> res.list(mappingFunc));
     }
 
-    public <T> Optional<T> runSingle(TransactionContext tx, String cypherQuery, Map<String, Object> paramMap, Function<Record, T> mappingFunc) {
+    public <T> List<T> run(TransactionContext tx, String name, Query query, Function<Record, T> mappingFunc) {
+        return timed(tx, name, query, res -> res.list(mappingFunc));
+    }
+
+    /**
+     * Hands the records to the consumer as they are read, without collecting them.
+     */
+    public void forEach(TransactionContext tx, String name, Query query, Consumer<Record> consumer) {
+        timed(tx, name, query, res -> {
+            res.forEachRemaining(consumer);
+            return null;
+        });
+    }
+
+    public <T> Optional<T> runSingle(TransactionContext tx, String name, String cypherQuery, Map<String, Object> paramMap, Function<Record, T> mappingFunc) {
         try {
-            var record =  tx.run(cypherQuery, paramMap).single();
+            var record = timed(tx, name, new Query(cypherQuery, paramMap), Result::single);
             return Optional.of(mappingFunc.apply(record));
         } catch (NoSuchRecordException ex){
             return Optional.empty();
         }
     }
 
-    public <T> List<T> readAll(Session session, String cypherQuery, Function<Record, T> mappingFunc) {
+    public <T> List<T> readAll(Session session, String name, String cypherQuery, Function<Record, T> mappingFunc) {
         return session.executeRead(tx -> {
-            return tx.run(cypherQuery).list(mappingFunc);
+            return timed(tx, name, new Query(cypherQuery), res -> res.list(mappingFunc));
         });
     }
 
-    public <T> List<T> readAll(Session session, String cypherQuery, Params params, Params.Sort sort, Function<Record, T> mappingFunc) {
+    public <T> List<T> readAll(Session session, String name, String cypherQuery, Params params, Params.Sort sort, Function<Record, T> mappingFunc) {
         return session.executeRead(tx -> {
             String query = String.format(cypherQuery, sort, sort, params.order());
-            Result res = tx.run(query, Values.parameters("skip", params.skip(), "limit", params.limit()));
-            return res.list(mappingFunc);
+            var parameters = Values.parameters("skip", params.skip(), "limit", params.limit());
+            return timed(tx, name, new Query(query, parameters), res -> res.list(mappingFunc));
         });
     }
 
-    public <T> List<T> readAll(Session session, String cypherQuery, Map<String, Object> paramMap, Function<Record, T> mappingFunc) {
+    public <T> List<T> readAll(Session session, String name, String cypherQuery, Map<String, Object> paramMap, Function<Record, T> mappingFunc) {
         return session.executeRead(tx -> {
-            Result res = tx.run(cypherQuery, paramMap);
-            return res.list(mappingFunc);
+            return timed(tx, name, new Query(cypherQuery, paramMap), res -> res.list(mappingFunc));
         });
     }
 
-    public <T> Optional<T> readOne(Session session, String cypherQuery, Map<String, Object> valueMap, Function<Record, T> mappingFunc) {
+    public <T> List<T> readAll(Session session, String name, Query query, Function<Record, T> mappingFunc) {
+        return session.executeRead(tx -> timed(tx, name, query, res -> res.list(mappingFunc)));
+    }
+
+    public <T> Optional<T> readOne(Session session, String name, String cypherQuery, Map<String, Object> valueMap, Function<Record, T> mappingFunc) {
         try {
-            var record = session.executeRead(tx -> tx.run(cypherQuery, valueMap).single());
+            var record = session.executeRead(tx -> timed(tx, name, new Query(cypherQuery, valueMap), Result::single));
             return Optional.of(mappingFunc.apply(record));
         } catch (NoSuchRecordException ex){
             return Optional.empty();
@@ -58,11 +82,24 @@ public class DbUtils {
     }
 
 
-    public <T> T write(Session session, String cypherQuery, Map<String, Object> valueMap, Function<Record, T> mappingFunc) {
+    public <T> T write(Session session, String name, String cypherQuery, Map<String, Object> valueMap, Function<Record, T> mappingFunc) {
         return session.executeWrite(tx -> {
-            var res = tx.run(cypherQuery, valueMap);
-            return mappingFunc.apply(res.single());
+            var res = timed(tx, name, new Query(cypherQuery, valueMap), Result::single);
+            return mappingFunc.apply(res);
         });
     }
 
+    /**
+     * Runs the query and reads its result, recording the client wall time and the server
+     * timings of the summary under the name of the statement.
+     */
+    private static <T> T timed(TransactionContext tx, String name, Query query, Function<Result, T> reader) {
+        long start = System.nanoTime();
+        var res = tx.run(query);
+        T value = reader.apply(res);
+        var summary = res.consume();
+        Metrics.recordQuery(name, System.nanoTime() - start,
+                summary.resultAvailableAfter(TimeUnit.NANOSECONDS), summary.resultConsumedAfter(TimeUnit.NANOSECONDS));
+        return value;
+    }
 }
@@ -0,0 +1,149 @@
+package neoflix.services;
+
+import neoflix.AppUtils;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * A bounded, per-user cache of the tmdbIds of the user's favorite movies.
+ *
+ * Entries are evicted least-recently-used once the cache is full and expire after a TTL.
+ * The ids of a user are kept as a sorted String[] rather than a List, and FavoriteService
+ * updates the entry of a user whenever they add or remove a favorite.
+ */
+public class FavoriteIdCache {
+    private static final FavoriteIdCache shared = new FavoriteIdCache(
+            AppUtils.getFavoritesCacheSize(), Duration.ofSeconds(AppUtils.getFavoritesCacheTtl()));
+
+    private record Entry(String[] ids, long expiresAt) {}
+
+    private final long ttlMillis;
+    private final Map<String, Entry> entries;
+    // incremented on every write, loads that started before a write are not cached
+    private long writes;
+    private long hits;
+    private long misses;
+
+    /**
+     * The cache shared by the MovieService and FavoriteService instances of the app.
+     */
+    public static FavoriteIdCache shared() {
+        return shared;
+    }
+
+    public FavoriteIdCache(int maxUsers, Duration ttl) {
+        this.ttlMillis = ttl.toMillis();
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    /**
+     * Returns the sorted favorite ids of the user, calling the loader when the user
+     * is not cached or the entry has expired.
+     */
+    public String[] get(String userId, Supplier<Collection<String>> loader) {
+        long version;
+        synchronized (this) {
+            Entry entry = entries.get(userId);
+            if (entry != null && entry.expiresAt() > System.currentTimeMillis()) {
+                hits++;
+                return entry.ids();
+            }
+            misses++;
+            version = writes;
+        }
+        return store(userId, version, loader.get());
+    }
+
+    /**
+     * Like get, for a loader that reads the ids asynchronously.
+     */
+    public CompletionStage<String[]> getAsync(String userId, Supplier<? extends CompletionStage<? extends Collection<String>>> loader) {
+        long version;
+        synchronized (this) {
+            Entry entry = entries.get(userId);
+            if (entry != null && entry.expiresAt() > System.currentTimeMillis()) {
+                hits++;
+                return CompletableFuture.completedFuture(entry.ids());
+            }
+            misses++;
+            version = writes;
+        }
+        return loader.get().thenApply(loaded -> store(userId, version, loaded));
+    }
+
+    private String[] store(String userId, long version, Collection<String> loaded) {
+        String[] ids = loaded.toArray(String[]::new);
+        Arrays.sort(ids);
+        synchronized (this) {
+            if (version == writes) {
+                entries.put(userId, new Entry(ids, System.currentTimeMillis() + ttlMillis));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Adds the movie to a cached entry of the user, keeping the ids sorted.
+     */
+    public synchronized void added(String userId, String movieId) {
+        writes++;
+        Entry entry = entries.get(userId);
+        if (entry == null) return;
+        int pos = Arrays.binarySearch(entry.ids(), movieId);
+        if (pos >= 0) return;
+        int insertAt = -pos - 1;
+        String[] ids = new String[entry.ids().length + 1];
+        System.arraycopy(entry.ids(), 0, ids, 0, insertAt);
+        ids[insertAt] = movieId;
+        System.arraycopy(entry.ids(), insertAt, ids, insertAt + 1, entry.ids().length - insertAt);
+        entries.put(userId, new Entry(ids, entry.expiresAt()));
+    }
+
+    /**
+     * Removes the movie from a cached entry of the user.
+     */
+    public synchronized void removed(String userId, String movieId) {
+        writes++;
+        Entry entry = entries.get(userId);
+        if (entry == null) return;
+        int pos = Arrays.binarySearch(entry.ids(), movieId);
+        if (pos < 0) return;
+        String[] ids = new String[entry.ids().length - 1];
+        System.arraycopy(entry.ids(), 0, ids, 0, pos);
+        System.arraycopy(entry.ids(), pos + 1, ids, pos, ids.length - pos);
+        entries.put(userId, new Entry(ids, entry.expiresAt()));
+    }
+
+    public synchronized void invalidate(String userId) {
+        writes++;
+        entries.remove(userId);
+    }
+
+    public static boolean contains(String[] ids, String movieId) {
+        return Arrays.binarySearch(ids, movieId) >= 0;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -5,18 +5,23 @@ import neoflix.Params;
 import neoflix.ValidationException;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
 import org.neo4j.driver.exceptions.NoSuchRecordException;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 public class FavoriteService {
 
     private DbUtils dbUtils;
+    private final AsyncDbUtils asyncDbUtils;
+    private final StatementCatalog statements = StatementCatalog.shared();
     private final Driver driver;
+    private final FavoriteIdCache favoriteIds;
 
     private final List<Map<String,Object>> popular;
     private final List<Map<String,Object>> users;
@@ -29,10 +34,16 @@ public class FavoriteService {
      * @param driver
      */
     public FavoriteService(Driver driver) {
+        this(driver, FavoriteIdCache.shared());
+    }
+
+    public FavoriteService(Driver driver, FavoriteIdCache favoriteIds) {
         this.driver = driver;
+        this.favoriteIds = favoriteIds;
         this.popular = AppUtils.loadFixtureList("popular");
         this.users = AppUtils.loadFixtureList("users");
         this.dbUtils = new DbUtils();
+        this.asyncDbUtils = new AsyncDbUtils();
     }
 
     /**
@@ -48,31 +59,34 @@ public class FavoriteService {
      * @param params Query params for pagination and sorting
      * @return List<Movie> An list of Movie objects
      */
-    // tag::all[]
     public List<Map<String, Object>> all(String userId, Params params) {
+        return all(userId, params, Value::asMap);
+    }
+
+    // tag::all[]
+    public <T> List<T> all(String userId, Params params, Function<Value, T> projection) {
         // TODO: Open a new session
         // TODO: Retrieve a list of movies favorited by the user
         // TODO: Close session
 
         try (var session = driver.session()) {
-            String statement = String.format("""
-                MATCH (u:User {userId: $userId})-[r:HAS_FAVORITE]->(m:Movie)
-                RETURN m {
-                .*,
-                  favorite: true
-                } AS movie
-                ORDER BY m.`%s` %s
-                SKIP $skip
-                LIMIT $limit
-            """, params.sort(Params.Sort.title), params.order());
-            Function<Record, Map<String, Object>> movieMappingFunc = row -> row.get("movie").asMap();
-            return this.dbUtils.readAll(session, statement,
-                    Map.of("userId", userId, "skip", params.skip(), "limit", params.limit()),
-                    movieMappingFunc);
+            var query = statements.query(StatementCatalog.Template.FAVORITES, params)
+                    .withParameters(Keyset.parameters(params, Map.of("userId", userId, "skip", params.skip(), "limit", params.limit())));
+            Function<Record, T> movieMappingFunc = row -> projection.apply(row.get("movie"));
+            return this.dbUtils.readAll(session, "FavoriteService.all", query, movieMappingFunc);
         }
     }
     // end::all[]
 
+    /**
+     * Async variant of all, the session is closed when the returned future completes.
+     */
+    public <T> CompletableFuture<List<T>> allAsync(String userId, Params params, Function<Value, T> projection) {
+        var query = statements.query(StatementCatalog.Template.FAVORITES, params)
+                .withParameters(Keyset.parameters(params, Map.of("userId", userId, "skip", params.skip(), "limit", params.limit())));
+        return asyncDbUtils.readAll(driver.asyncSession(), "FavoriteService.allAsync", query, row -> projection.apply(row.get("movie")));
+    }
+
     /**
      * This method should create a `:HAS_FAVORITE` relationship between
      * the User and Movie ID nodes provided.
@@ -83,8 +97,12 @@ public class FavoriteService {
      * @param movieId The unique tmdbId for the Movie node
      * @return Map<String,Object></String,Object> The updated movie record with `favorite` set to true
      */
-    // tag::add[]
     public Map<String,Object> add(String userId, String movieId) {
+        return add(userId, movieId, Value::asMap);
+    }
+
+    // tag::add[]
+    public <T> T add(String userId, String movieId, Function<Value, T> projection) {
         // TODO: Open a new Session
         // TODO: Create HAS_FAVORITE relationship within a Write Transaction
         // TODO: Close the session
@@ -102,10 +120,12 @@ public class FavoriteService {
                     favorite: true
                 } AS movie
             """;
-            Function<Record, Map<String, Object>> movieMappingFunc = row -> row.get("movie").asMap();
-            return this.dbUtils.write(session, statement,
+            Function<Record, T> movieMappingFunc = row -> projection.apply(row.get("movie"));
+            var movie = this.dbUtils.write(session, "FavoriteService.add", statement,
                     Map.of("userId", userId, "movieId", movieId),
                     movieMappingFunc);
+            favoriteIds.added(userId, movieId);
+            return movie;
         } catch (NoSuchRecordException e) {
             throw new ValidationException(
                     String.format("Couldn't create a favorite relationship for User %s and Movie %s", userId, movieId),
@@ -124,8 +144,12 @@ public class FavoriteService {
      * @param movieId The unique tmdbId for the Movie node
      * @return Map<String,Object></String,Object> The updated movie record with `favorite` set to true
      */
-    // tag::remove[]
     public Map<String,Object> remove(String userId, String movieId) {
+        return remove(userId, movieId, Value::asMap);
+    }
+
+    // tag::remove[]
+    public <T> T remove(String userId, String movieId, Function<Value, T> projection) {
         // TODO: Open a new Session
         // TODO: Delete the HAS_FAVORITE relationship within a Write Transaction
         // TODO: Close the session
@@ -140,10 +164,12 @@ public class FavoriteService {
                   favorite: false
                 } AS movie
             """;
-            Function<Record, Map<String, Object>> movieMappingFunc = row -> row.get("movie").asMap();
-            return this.dbUtils.write(session, statement,
+            Function<Record, T> movieMappingFunc = row -> projection.apply(row.get("movie"));
+            var movie = this.dbUtils.write(session, "FavoriteService.remove", statement,
                     Map.of("userId", userId, "movieId", movieId),
                     movieMappingFunc);
+            favoriteIds.removed(userId, movieId);
+            return movie;
         } catch (NoSuchRecordException e) {
             throw new ValidationException(
                     String.format("Couldn't create a favorite relationship for User %s and Movie %s", userId, movieId),
@@ -0,0 +1,50 @@
+package neoflix.services;
+
+import java.util.Locale;
+
+/**
+ * The full-text indexes for searching people by name and movies by title, and the
+ * translation of a search box input into a query for them.
+ */
+public final class FullTextSearch {
+    public static final String PERSON_NAME = "personName";
+    public static final String MOVIE_TITLE = "movieTitle";
+
+    private static final String SPECIAL = "+-&|!(){}[]^\"~*?:\\/";
+
+    private FullTextSearch() {}
+
+    /**
+     * How the `q` parameter of the people and movie listings is matched.
+     *
+     * CONTAINS filters with `CONTAINS`, which reads every node of the label. FULLTEXT looks
+     * the input up in the full-text index and returns the matches by relevance, so a search
+     * only reads the nodes that match.
+     */
+    public enum Mode {
+        CONTAINS, FULLTEXT;
+
+        public static Mode of(String value) {
+            if (value == null || value.isBlank()) return CONTAINS;
+            return Mode.valueOf(value.toUpperCase());
+        }
+    }
+
+    /**
+     * A query matching names that contain words starting with each word of the input,
+     * e.g. `tom ha` finds Tom Hanks. Lucene syntax in the input is escaped.
+     */
+    public static String prefixQuery(String input) {
+        var query = new StringBuilder();
+        for (String word : input.trim().toLowerCase(Locale.ROOT).split("\\s+")) {
+            if (word.isEmpty()) continue;
+            if (!query.isEmpty()) query.append(" AND ");
+            for (char c : word.toCharArray()) {
+                if (SPECIAL.indexOf(c) >= 0) query.append('\\');
+                query.append(c);
+            }
+            query.append('*');
+        }
+        return query.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package neoflix.services;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.neo4j.driver.types.MapAccessor;
+
+import java.io.IOException;
+
+import static neoflix.services.Projections.*;
+
+/**
+ * A Genre with the number of movies in it and a poster to be used as a background.
+ */
+@JsonAdapter(Genre.Adapter.class)
+public record Genre(String name, Long movies, String poster) {
+
+    public static Genre from(MapAccessor row) {
+        return new Genre(string(row, "name"), longValue(row, "movies"), string(row, "poster"));
+    }
+
+    public static class Adapter extends TypeAdapter<Genre> {
+        @Override
+        public void write(JsonWriter out, Genre genre) throws IOException {
+            out.beginObject();
+            out.name("name").value(genre.name());
+            out.name("movies").value(genre.movies());
+            out.name("poster").value(genre.poster());
+            out.endObject();
+        }
+
+        @Override
+        public Genre read(JsonReader in) throws IOException {
+            String name = null, poster = null;
+            Long movies = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "name" -> name = readString(in);
+                    case "movies" -> movies = readLong(in);
+                    case "poster" -> poster = readString(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Genre(name, movies, poster);
+        }
+    }
+}
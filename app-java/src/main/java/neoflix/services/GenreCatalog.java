@@ -0,0 +1,113 @@
+package neoflix.services;
+
+import neoflix.AppUtils;
+import org.neo4j.driver.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * The genres with their movie counts and posters, held in memory.
+ *
+ * The genre listing sorts the movies of every genre to pick a poster, and it hardly ever
+ * changes, so it is read once and served from memory. Once the snapshot is older than the
+ * TTL it is still served while a new one is read in the background, so only the very first
+ * request waits for the database. Every snapshot has an entity tag derived from its content
+ * for conditional requests.
+ *
+ * The app itself never writes movies or genres, they only change with an import, so the
+ * catalog is not invalidated. An import shows up once the snapshot has outlived the TTL.
+ */
+public class GenreCatalog {
+    private static final GenreCatalog shared = new GenreCatalog(Duration.ofSeconds(AppUtils.getGenreCatalogTtl()));
+
+    /**
+     * The genres ordered by name, with the tag of their content.
+     */
+    public record Snapshot(List<Value> genres, Map<String, Value> byName, String etag, long loadedAt) {
+
+        static Snapshot of(List<Value> genres) {
+            var byName = new HashMap<String, Value>();
+            var crc = new CRC32();
+            for (Value genre : genres) {
+                byName.put(genre.get("name").asString(), genre);
+                crc.update(genre.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            String etag = "\"" + Long.toHexString(crc.getValue()) + "-" + genres.size() + "\"";
+            return new Snapshot(List.copyOf(genres), byName, etag, System.currentTimeMillis());
+        }
+
+        public <T> List<T> all(Function<Value, T> projection) {
+            var result = new ArrayList<T>(genres.size());
+            for (Value genre : genres) result.add(projection.apply(genre));
+            return result;
+        }
+
+        public <T> Optional<T> find(String name, Function<Value, T> projection) {
+            return Optional.ofNullable(byName.get(name)).map(projection);
+        }
+    }
+
+    private final long ttlMillis;
+    private Snapshot snapshot;
+    private CompletableFuture<Snapshot> loading;
+
+    /**
+     * The catalog shared by the GenreService instances of the app.
+     */
+    public static GenreCatalog shared() {
+        return shared;
+    }
+
+    /**
+     * @param ttl how long a snapshot is served before it is read again, zero to read it on every request
+     */
+    public GenreCatalog(Duration ttl) {
+        this.ttlMillis = ttl.toMillis();
+    }
+
+    /**
+     * Returns the current snapshot, calling the loader when there is none yet or it has expired.
+     */
+    public CompletableFuture<Snapshot> getAsync(Supplier<? extends CompletionStage<List<Value>>> loader) {
+        if (ttlMillis <= 0) return loader.get().thenApply(Snapshot::of).toCompletableFuture();
+        CompletableFuture<Snapshot> load;
+        synchronized (this) {
+            boolean fresh = snapshot != null && System.currentTimeMillis() - snapshot.loadedAt() < ttlMillis;
+            if (fresh || (snapshot != null && loading != null)) return CompletableFuture.completedFuture(snapshot);
+            if (loading != null) return loading;
+            load = loading = new CompletableFuture<>();
+        }
+        var stale = snapshotIfAny();
+        loader.get().thenApply(Snapshot::of).whenComplete((loaded, error) -> {
+            synchronized (this) {
+                if (loading == load) loading = null;
+                if (error == null) snapshot = loaded;
+            }
+            if (error != null) load.completeExceptionally(error);
+            else load.complete(loaded);
+        });
+        return stale != null ? CompletableFuture.completedFuture(stale) : load;
+    }
+
+    /**
+     * Like getAsync, for a loader that reads the genres on the calling thread.
+     */
+    public Snapshot get(Supplier<List<Value>> loader) {
+        return getAsync(() -> CompletableFuture.completedFuture(loader.get())).join();
+    }
+
+    private synchronized Snapshot snapshotIfAny() {
+        return snapshot;
+    }
+}
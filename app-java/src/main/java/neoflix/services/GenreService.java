@@ -2,17 +2,29 @@ package neoflix.services;
 
 import neoflix.AppUtils;
 import org.neo4j.driver.Driver;
+import org.neo4j.driver.Query;
+import org.neo4j.driver.Value;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 public class GenreService {
     private final Driver driver;
     private final DbUtils dbUtils;
+    private final AsyncDbUtils asyncDbUtils;
+    private final GenreCatalog catalog;
 
     public GenreService(Driver driver) {
+        this(driver, GenreCatalog.shared());
+    }
+
+    public GenreService(Driver driver, GenreCatalog catalog) {
         this.driver = driver;
+        this.catalog = catalog;
         this.dbUtils = new DbUtils();
+        this.asyncDbUtils = new AsyncDbUtils();
     }
 
     /**
@@ -29,15 +41,16 @@ public class GenreService {
      *
      * ]
      *
+     * The genres are served from the GenreCatalog, the query only runs once the
+     * catalog is older than its TTL.
+     *
      * @return List<Genre> genres
      */
-    // tag::all[]
     public List<Map<String, Object>> all() {
-        // TODO: Open a new session
-        // TODO: Get a list of Genres from the database
-        // TODO: Close the session
-        try (var session = this.driver.session()){
-            String query = """
+        return all(Value::asMap);
+    }
+
+    private static final String ALL_QUERY = """
                     MATCH (g:Genre)
                     WHERE g.name <> '(no genres listed)'
                                         
@@ -56,11 +69,24 @@ public class GenreService {
                     }
                     ORDER BY g.name ASC
                     """;
-            return this.dbUtils.readAll(session, query, row -> row.get(0).asMap());
-        }
+
+    // tag::all[]
+    public <T> List<T> all(Function<Value, T> projection) {
+        // TODO: Open a new session
+        // TODO: Get a list of Genres from the database
+        // TODO: Close the session
+        return catalog().all(projection);
     }
     // end::all[]
 
+    private GenreCatalog.Snapshot catalog() {
+        return catalog.get(() -> {
+            try (var session = this.driver.session()){
+                return this.dbUtils.readAll(session, "GenreService.catalog", ALL_QUERY, row -> row.get(0));
+            }
+        });
+    }
+
     /**
      * This method should find a Genre node by its name and return a set of properties
      * along with a `poster` image and `movies` count.
@@ -70,30 +96,38 @@ public class GenreService {
      * @param name                     The name of the genre
      * @return Genre  The genre information
      */
-    // tag::find[]
     public Map<String,Object> find(String name) {
+        return find(name, Value::asMap);
+    }
+
+    // tag::find[]
+    public <T> T find(String name, Function<Value, T> projection) {
         // TODO: Open a new session
         // TODO: Get Genre information from the database
         // TODO: Throw a 404 Error if the genre is not found
         // TODO: Close the session
-        try (var session = this.driver.session()){
-            String query = """
-                    MATCH (g:Genre {name: $name})<-[:IN_GENRE]-(m:Movie)
-                    WHERE m.imdbRating IS NOT NULL AND m.poster IS NOT NULL AND g.name <> '(no genres listed)'
-                    WITH g, m
-                    ORDER BY m.imdbRating DESC
-                                        
-                    WITH g, head(collect(m)) AS movie
-                                        
-                    RETURN g {
-                        .name,
-                        movies: count { (g)<-[:IN_GENRE]-() },
-                        poster: movie.poster
-                    } AS genre
-                    """;
-            return this.dbUtils.readOne(session, query, Map.of("name", name), row -> row.get("genre").asMap())
-                    .orElseThrow(() -> new RuntimeException("Genre "+name+" not found"));
-        }
+        return catalog().find(name, projection)
+                .orElseThrow(() -> new RuntimeException("Genre "+name+" not found"));
     }
     // end::find[]
+
+    /*
+     * Async variants of the methods above, the session is closed when the returned future completes.
+     */
+
+    public <T> CompletableFuture<List<T>> allAsync(Function<Value, T> projection) {
+        return catalogAsync().thenApply(catalog -> catalog.all(projection));
+    }
+
+    public <T> CompletableFuture<T> findAsync(String name, Function<Value, T> projection) {
+        return catalogAsync().thenApply(catalog -> catalog.find(name, projection)
+                .orElseThrow(() -> new RuntimeException("Genre "+name+" not found")));
+    }
+
+    /**
+     * The current snapshot of the catalog, for routes that answer conditional requests with its etag.
+     */
+    public CompletableFuture<GenreCatalog.Snapshot> catalogAsync() {
+        return catalog.getAsync(() -> asyncDbUtils.readAll(driver.asyncSession(), "GenreService.catalogAsync", new Query(ALL_QUERY), row -> row.get(0)));
+    }
 }
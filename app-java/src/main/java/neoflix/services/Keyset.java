@@ -0,0 +1,62 @@
+package neoflix.services;
+
+import neoflix.Params;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cypher fragments for keyset (cursor) pagination.
+ *
+ * A keyset listing is ordered by the sort key and then by an id as tie-breaker, and
+ * continues after the `(sort value, id)` of the cursor instead of skipping rows.
+ * Without a cursor the fragments are empty, leaving SKIP/LIMIT pagination as it was.
+ */
+final class Keyset {
+    private Keyset() {}
+
+    /**
+     * The pagination variant of a listing statement.
+     */
+    enum Page {
+        OFFSET, FIRST, NEXT;
+
+        static Page of(Params params) {
+            if (!params.keyset()) return OFFSET;
+            return params.cursor().isStart() ? FIRST : NEXT;
+        }
+    }
+
+    /**
+     * The predicate selecting the rows after the cursor, prefixed with `keyword` (WHERE or AND).
+     * The range on the sort key comes first so that it can be answered by an index seek.
+     */
+    static String where(String keyword, Page page, Params.Order order, String sortKey, String idKey) {
+        return switch (page) {
+            case OFFSET -> "";
+            case FIRST -> String.format(" %s %s IS NOT NULL", keyword, sortKey);
+            case NEXT -> String.format(" %1$s %2$s %3$s= $after AND (%2$s %3$s $after OR %4$s %3$s $afterId)",
+                    keyword, sortKey, order == Params.Order.DESC ? "<" : ">", idKey);
+        };
+    }
+
+    /**
+     * The tie-breaker to append to the ORDER BY clause.
+     */
+    static String orderBy(Page page, Params.Order order, String idKey) {
+        return page == Page.OFFSET ? "" : ", " + idKey + " " + order;
+    }
+
+    /**
+     * Adds the `$after` and `$afterId` parameters of the cursor. The cursor already marks
+     * where the page starts, so `$skip` is 0 rather than skipping more rows after it.
+     */
+    static Map<String, Object> parameters(Params params, Map<String, Object> parameters) {
+        if (Page.of(params) != Page.NEXT) return parameters;
+        var result = new HashMap<>(parameters);
+        result.put("after", params.cursor().after());
+        result.put("afterId", params.cursor().id());
+        if (result.containsKey("skip")) result.put("skip", 0);
+        return result;
+    }
+}
@@ -0,0 +1,166 @@
+package neoflix.services;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import neoflix.Params;
+import org.neo4j.driver.types.MapAccessor;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static neoflix.services.Projections.*;
+
+/**
+ * A Movie as returned by the movie listings and detail view.
+ * The cast, genres and rating count are only set for the detail view, `avgRating` once
+ * the movie has been rated, `score` for similarity listings, `rating` when the current
+ * user rated the movie and `favorite` when the listing was requested by a user.
+ */
+@JsonAdapter(Movie.Adapter.class)
+public record Movie(String tmdbId, String imdbId, String movieId, String title, String plot, String poster,
+                    String url, LocalDate released, Long year, Long runtime, Double imdbRating, Long imdbVotes,
+                    Long budget, Long revenue, List<String> languages, List<String> countries,
+                    List<Person> actors, List<Person> directors, List<Genre> genres,
+                    Long ratingCount, Double avgRating, Number rating, Double score, Boolean favorite) implements Params.Sortable {
+
+    public static Movie from(MapAccessor row) {
+        return new Movie(
+                string(row, "tmdbId"),
+                string(row, "imdbId"),
+                string(row, "movieId"),
+                string(row, "title"),
+                string(row, "plot"),
+                string(row, "poster"),
+                string(row, "url"),
+                date(row, "released"),
+                longValue(row, "year"),
+                longValue(row, "runtime"),
+                doubleValue(row, "imdbRating"),
+                longValue(row, "imdbVotes"),
+                longValue(row, "budget"),
+                longValue(row, "revenue"),
+                list(row, "languages", v -> v.asString()),
+                list(row, "countries", v -> v.asString()),
+                list(row, "actors", Person::from),
+                list(row, "directors", Person::from),
+                list(row, "genres", Genre::from),
+                longValue(row, "ratingCount"),
+                doubleValue(row, "avgRating"),
+                number(row, "rating"),
+                doubleValue(row, "score"),
+                bool(row, "favorite"));
+    }
+
+    @Override
+    public Object sortValue(Params.Sort sort) {
+        return switch (sort) {
+            case title -> title;
+            case released -> released;
+            case imdbRating -> imdbRating;
+            case score -> score;
+            default -> null;
+        };
+    }
+
+    @Override
+    public String cursorId() {
+        return tmdbId;
+    }
+
+    public static class Adapter extends TypeAdapter<Movie> {
+        private final TypeAdapter<Person> people = new Person.Adapter().nullSafe();
+        private final TypeAdapter<Genre> genres = new Genre.Adapter().nullSafe();
+
+        @Override
+        public void write(JsonWriter out, Movie movie) throws IOException {
+            out.beginObject();
+            out.name("tmdbId").value(movie.tmdbId());
+            out.name("imdbId").value(movie.imdbId());
+            out.name("movieId").value(movie.movieId());
+            out.name("title").value(movie.title());
+            out.name("plot").value(movie.plot());
+            out.name("poster").value(movie.poster());
+            out.name("url").value(movie.url());
+            writeDate(out, "released", movie.released());
+            out.name("year").value(movie.year());
+            out.name("runtime").value(movie.runtime());
+            out.name("imdbRating").value(movie.imdbRating());
+            out.name("imdbVotes").value(movie.imdbVotes());
+            out.name("budget").value(movie.budget());
+            out.name("revenue").value(movie.revenue());
+            writeStrings(out, "languages", movie.languages());
+            writeStrings(out, "countries", movie.countries());
+            writePeople(out, "actors", movie.actors());
+            writePeople(out, "directors", movie.directors());
+            if (movie.genres() != null) {
+                out.name("genres").beginArray();
+                for (Genre genre : movie.genres()) genres.write(out, genre);
+                out.endArray();
+            }
+            out.name("ratingCount").value(movie.ratingCount());
+            out.name("avgRating").value(movie.avgRating());
+            out.name("rating").value(movie.rating());
+            out.name("score").value(movie.score());
+            out.name("favorite").value(movie.favorite());
+            out.endObject();
+        }
+
+        private void writePeople(JsonWriter out, String name, List<Person> persons) throws IOException {
+            if (persons == null) return;
+            out.name(name).beginArray();
+            for (Person person : persons) people.write(out, person);
+            out.endArray();
+        }
+
+        @Override
+        public Movie read(JsonReader in) throws IOException {
+            String tmdbId = null, imdbId = null, movieId = null, title = null, plot = null,
+                    poster = null, url = null;
+            LocalDate released = null;
+            Long year = null, runtime = null, imdbVotes = null, budget = null, revenue = null, ratingCount = null;
+            Double imdbRating = null, avgRating = null, score = null;
+            List<String> languages = null, countries = null;
+            List<Person> actors = null, directors = null;
+            List<Genre> genreList = null;
+            Number rating = null;
+            Boolean favorite = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "tmdbId" -> tmdbId = readString(in);
+                    case "imdbId" -> imdbId = readString(in);
+                    case "movieId" -> movieId = readString(in);
+                    case "title" -> title = readString(in);
+                    case "plot" -> plot = readString(in);
+                    case "poster" -> poster = readString(in);
+                    case "url" -> url = readString(in);
+                    case "released" -> released = readDate(in);
+                    case "year" -> year = readLong(in);
+                    case "runtime" -> runtime = readLong(in);
+                    case "imdbRating" -> imdbRating = readDouble(in);
+                    case "imdbVotes" -> imdbVotes = readLong(in);
+                    case "budget" -> budget = readLong(in);
+                    case "revenue" -> revenue = readLong(in);
+                    case "languages" -> languages = readList(in, Projections::readString);
+                    case "countries" -> countries = readList(in, Projections::readString);
+                    case "actors" -> actors = readList(in, people::read);
+                    case "directors" -> directors = readList(in, people::read);
+                    case "genres" -> genreList = readList(in, genres::read);
+                    case "ratingCount" -> ratingCount = readLong(in);
+                    case "avgRating" -> avgRating = readDouble(in);
+                    case "rating" -> rating = readNumber(in);
+                    case "score" -> score = readDouble(in);
+                    case "favorite" -> favorite = readBool(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Movie(tmdbId, imdbId, movieId, title, plot, poster, url, released, year, runtime,
+                    imdbRating, imdbVotes, budget, revenue, languages, countries, actors, directors, genreList,
+                    ratingCount, avgRating, rating, score, favorite);
+        }
+    }
+}
@@ -3,26 +3,163 @@ package neoflix.services;
 import neoflix.AppUtils;
 import neoflix.Params;
 import org.neo4j.driver.Driver;
+import org.neo4j.driver.Query;
 import org.neo4j.driver.Record;
 import org.neo4j.driver.TransactionContext;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.async.AsyncTransactionContext;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.ZonedDateTime;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class MovieService {
     private final DbUtils dbUtils;
+    private final AsyncDbUtils asyncDbUtils;
+    private final ReactiveDbUtils reactiveDbUtils;
+    private final StatementCatalog statements = StatementCatalog.shared();
 
     private final Driver driver;
 
+    private final FavoritesMode favoritesMode;
+    private final FavoriteIdCache favoriteIds;
+    private final DetailMode detailMode;
+    private final RatingCountCache ratingCounts;
+    private final SimilarMode similarMode;
+    private final FullTextSearch.Mode searchMode;
+
+    // the statements only depend on the favorites mode, so they are formatted once
+    private final String findByIdQuery;
+    private final String similarMoviesQuery;
+    private final String modeSimilarMoviesQuery;
+    private final String searchQuery;
+
+    /**
+     * How the `favorite` flag of a movie is computed.
+     *
+     * CLIENT reads the ids of the user's favorite movies in a separate query and sends them
+     * back as the `$favorites` parameter, SERVER checks for the `:HAS_FAVORITE` relationship
+     * inside the same statement.
+     */
+    public enum FavoritesMode {
+        CLIENT("m.tmdbId IN $favorites"),
+        SERVER("exists { (:User {userId: $userId})-[:HAS_FAVORITE]->(m) }");
+
+        final String expression;
+
+        FavoritesMode(String expression) {
+            this.expression = expression;
+        }
+
+        public static FavoritesMode of(String value) {
+            if (value == null || value.isBlank()) return CLIENT;
+            return FavoritesMode.valueOf(value.toUpperCase());
+        }
+    }
+
+    /**
+     * How the detail view of a movie is read.
+     *
+     * SINGLE reads the movie with its actors, directors, genres, rating count and favorite
+     * flag in one statement. FANOUT runs the parts as independent statements on separate
+     * sessions at the same time and merges them, with the rating count served from the
+     * RatingCountCache, so the slowest part rather than the sum of all parts sets the latency.
+     */
+    public enum DetailMode {
+        SINGLE, FANOUT;
+
+        public static DetailMode of(String value) {
+            if (value == null || value.isBlank()) return SINGLE;
+            return DetailMode.valueOf(value.toUpperCase());
+        }
+    }
+
+    /**
+     * How similar movies are found.
+     *
+     * LIVE expands the genres of the movie and scores every movie reached on each request.
+     * PRECOMPUTED pages through the `:SIMILAR {score}` relationships written by
+     * BatchJobs.refreshSimilarMovies, and falls back to LIVE until they have been computed.
+     * WEIGHTED does not walk through the genre supernodes: candidates are the movies sharing
+     * cast or crew, and each shared genre adds its inverse document frequency to the score,
+     * so a rare genre counts for more than Drama.
+     */
+    public enum SimilarMode {
+        LIVE, PRECOMPUTED, WEIGHTED;
+
+        public static SimilarMode of(String value) {
+            if (value == null || value.isBlank()) return LIVE;
+            return SimilarMode.valueOf(value.toUpperCase());
+        }
+    }
+
     /**
      * The constructor expects an instance of the Neo4j Driver, which will be
      * used to interact with Neo4j.
      */
     public MovieService(Driver driver) {
+        this(driver, FavoritesMode.of(AppUtils.getFavoritesMode()));
+    }
+
+    public MovieService(Driver driver, FavoritesMode favoritesMode) {
+        this(driver, favoritesMode, FavoriteIdCache.shared());
+    }
+
+    public MovieService(Driver driver, FavoritesMode favoritesMode, FavoriteIdCache favoriteIds) {
+        this(driver, favoritesMode, favoriteIds, DetailMode.of(AppUtils.getMovieDetailMode()), RatingCountCache.shared());
+    }
+
+    public MovieService(Driver driver, FavoritesMode favoritesMode, FavoriteIdCache favoriteIds,
+                        DetailMode detailMode, RatingCountCache ratingCounts) {
+        this(driver, favoritesMode, favoriteIds, detailMode, ratingCounts, SimilarMode.of(AppUtils.getSimilarMoviesMode()));
+    }
+
+    public MovieService(Driver driver, FavoritesMode favoritesMode, FavoriteIdCache favoriteIds,
+                        DetailMode detailMode, RatingCountCache ratingCounts, SimilarMode similarMode) {
         this.driver = driver;
+        this.favoritesMode = favoritesMode;
+        this.favoriteIds = favoriteIds;
+        this.detailMode = detailMode;
+        this.ratingCounts = ratingCounts;
+        this.similarMode = similarMode;
+        this.searchMode = FullTextSearch.Mode.of(AppUtils.getSearchMode());
         this.dbUtils = new DbUtils();
+        this.asyncDbUtils = new AsyncDbUtils();
+        this.reactiveDbUtils = new ReactiveDbUtils();
+        this.findByIdQuery = String.format("""
+                        MATCH (m:Movie {tmdbId: $id})
+                        RETURN m {
+                          .*,
+                          actors: [ (a)-[r:ACTED_IN]->(m) | a { .*, role: r.role } ],
+                          directors: [ (d)-[:DIRECTED]->(m) | d { .* } ],
+                          genres: [ (m)-[:IN_GENRE]->(g) | g { .name }],
+                          ratingCount: coalesce(m.ratingCount, count{ (m)<-[:RATED]-() }),
+                          favorite: %s
+                        } AS movie
+                        LIMIT 1
+                    """, favoritesMode.expression);
+        this.similarMoviesQuery = similarMoviesQuery(SimilarMode.LIVE, favoritesMode);
+        this.modeSimilarMoviesQuery = similarMoviesQuery(similarMode, favoritesMode);
+        this.searchQuery = String.format("""
+                    CALL db.index.fulltext.queryNodes($index, $search, {skip: $skip, limit: $limit})
+                    YIELD node AS m, score
+                    RETURN m {
+                      .*,
+                      score: score,
+                      favorite: %s
+                    } AS movie
+                    """, favoritesMode.expression);
     }
 
     /**
@@ -33,32 +170,26 @@ public class MovieService {
      * If a userId value is supplied, a `favorite` boolean property should be returned to
      * signify whether the user has aded the movie to their "My Favorites" list.
      *
+     * In full-text search mode a `q` param searches the movie titles instead, ordered by
+     * their relevance `score`.
+     *
      * @param params query params (query, sort, order, limit, skip)
      * @param userId
      * @returns {Promise<Record<string, any>[]>}
      */
-    // tag::all[]
     public List<Map<String,Object>> all(Params params, String userId) {
+        return all(params, userId, Value::asMap);
+    }
+
+    // tag::all[]
+    public <T> List<T> all(Params params, String userId, Function<Value, T> projection) {
         // TODO: Open an Session
         try (var session = driver.session()) {
             var movies = session.executeRead(tx -> {
-                // Get an array of IDs for the User's favorite movies
-                var favorites = getUserFavorites(tx, userId);
-                Params.Sort sort = params.sort(Params.Sort.title);
-                String query = String.format("""
-                        MATCH (m:Movie)
-                        WHERE m.`%s` IS NOT NULL
-                        RETURN m {
-                          .*,
-                          favorite: m.tmdbId IN $favorites
-                        } AS movie
-                        ORDER BY m.`%s` %s
-                        SKIP $skip
-                        LIMIT $limit
-                    """, sort, sort, params.order());
+                var query = moviesQuery(params)
+                        .withParameters(withFavorites(tx, userId, moviesParameters(params)));
 
-                return this.dbUtils.run(tx, query, Map.of("skip", params.skip(), "limit", params.limit(), "favorites",favorites),
-                        row -> row.get("movie").asMap());
+                return this.dbUtils.run(tx, "MovieService.all", query, row -> projection.apply(row.get("movie")));
             });
             return movies;
         }
@@ -79,27 +210,24 @@ public class MovieService {
      * @param {string} id
      * @returns {Promise<Record<string, any>>}
      */
-    // tag::findById[]
     public Map<String,Object> findById(String id, String userId) {
+        return findById(id, userId, Value::asMap);
+    }
+
+    // tag::findById[]
+    public <T> T findById(String id, String userId, Function<Value, T> projection) {
+        if (detailMode == DetailMode.FANOUT) {
+            try {
+                return findByIdFanOut(id, userId, projection).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                throw e;
+            }
+        }
         try (var session = driver.session()) {
             var result = session.executeRead(tx -> {
-                // Get an array of IDs for the User's favorite movies
-                var favorites = getUserFavorites(tx, userId);
-                String query = String.format("""
-                        MATCH (m:Movie {tmdbId: $id})
-                        RETURN m {
-                          .*,
-                          actors: [ (a)-[r:ACTED_IN]->(m) | a { .*, role: r.role } ],
-                          directors: [ (d)-[:DIRECTED]->(m) | d { .* } ],
-                          genres: [ (m)-[:IN_GENRE]->(g) | g { .name }],
-                          ratingCount: count{ (m)<-[:RATED]-() },
-                          favorite: m.tmdbId IN $favorites
-                        } AS movie
-                        LIMIT 1
-                    """);
-
-                var res = this.dbUtils.runSingle(tx, query, Map.of("id", id, "favorites",favorites),
-                        row -> row.get("movie").asMap());
+                var res = this.dbUtils.runSingle(tx, "MovieService.findById", findByIdQuery, withFavorites(tx, userId, Map.of("id", id)),
+                        row -> projection.apply(row.get("movie")));
                 return res.orElseThrow(RuntimeException::new);
             });
             return result;
@@ -125,33 +253,17 @@ public class MovieService {
      * @param userId
      * @returns List<Movie> similar movies
      */
-    // tag::getSimilarMovies[]
     public List<Map<String,Object>> getSimilarMovies(String id, Params params, String userId) {
+        return getSimilarMovies(id, params, userId, Value::asMap);
+    }
+
+    // tag::getSimilarMovies[]
+    public <T> List<T> getSimilarMovies(String id, Params params, String userId, Function<Value, T> projection) {
         // TODO: Get similar movies based on genres or ratings
         try (var session = driver.session()) {
             var result = session.executeRead(tx -> {
-                // Get an array of IDs for the User's favorite movies
-                var favorites = getUserFavorites(tx, userId);
-                String query = String.format("""
-                    MATCH (:Movie {tmdbId: $id})-[:IN_GENRE|ACTED_IN|DIRECTED]->()<-[:IN_GENRE|ACTED_IN|DIRECTED]-(m)
-                    WHERE m.imdbRating IS NOT NULL
-                    
-                    WITH m, count(*) AS inCommon
-                    WITH m, inCommon, m.imdbRating * inCommon AS score
-                    ORDER BY score DESC
-                    
-                    SKIP $skip
-                    LIMIT $limit
-                    
-                    RETURN m {
-                       .*,
-                       score: score,
-                       favorite: m.tmdbId IN $favorites
-                    } AS movie
-                    """);
-
-                return this.dbUtils.run(tx, query, Map.of("id", id, "skip", params.skip(), "limit", params.limit(), "favorites",favorites),
-                        row -> row.get("movie").asMap());
+                return this.dbUtils.run(tx, "MovieService.getSimilarMovies", similarQuery(similarMoviesRefreshedAt()), withFavorites(tx, userId, Map.of("id", id, "skip", params.skip(), "limit", params.limit())),
+                        row -> projection.apply(row.get("movie")));
             });
             return result;
         }
@@ -176,27 +288,18 @@ public class MovieService {
      * @param userId
      * @return List<Movie> movies for that genre
      */
-    // tag::getByGenre[]
     public List<Map<String,Object>> byGenre(String name, Params params, String userId) {
+        return byGenre(name, params, userId, Value::asMap);
+    }
+
+    // tag::getByGenre[]
+    public <T> List<T> byGenre(String name, Params params, String userId, Function<Value, T> projection) {
         try (var session = driver.session()) {
             var movies = session.executeRead(tx -> {
-                // Get an array of IDs for the User's favorite movies
-                var favorites = getUserFavorites(tx, userId);
-                Params.Sort sort = params.sort(Params.Sort.title);
-                String query = String.format("""
-                        MATCH (m:Movie)-[:IN_GENRE]->(:Genre {name: $name})
-                        WHERE m.`%s` IS NOT NULL
-                        RETURN m {
-                          .*,
-                          favorite: m.tmdbId IN $favorites
-                        } AS movie
-                        ORDER BY m.`%s` %s
-                        SKIP $skip
-                        LIMIT $limit
-                    """, sort, sort, params.order());
+                var query = statements.query(StatementCatalog.Template.MOVIES_BY_GENRE, params, favoritesMode)
+                        .withParameters(withFavorites(tx, userId, Keyset.parameters(params, Map.of("name", name, "skip", params.skip(), "limit", params.limit()))));
 
-                return this.dbUtils.run(tx, query, Map.of("name", name, "skip", params.skip(), "limit", params.limit(), "favorites",favorites),
-                        row -> row.get("movie").asMap());
+                return this.dbUtils.run(tx, "MovieService.byGenre", query, row -> projection.apply(row.get("movie")));
             });
             return movies;
         }
@@ -220,28 +323,19 @@ public class MovieService {
      * @param userId
      * @return List<Movie>
      */
+    public List<Map<String,Object>> getForActor(String actorId, Params params, String userId) {
+        return getForActor(actorId, params, userId, Value::asMap);
+    }
+
     // tag::getForActor[]
-    public List<Map<String,Object>> getForActor(String actorId, Params params,String userId) {
+    public <T> List<T> getForActor(String actorId, Params params, String userId, Function<Value, T> projection) {
         // TODO: Get Movies acted in by a Person
         try (var session = driver.session()) {
             var movies = session.executeRead(tx -> {
-                // Get an array of IDs for the User's favorite movies
-                var favorites = getUserFavorites(tx, userId);
-                Params.Sort sort = params.sort(Params.Sort.title);
-                String query = String.format("""
-                        MATCH (:Person {tmdbId: $id})-[:ACTED_IN]->(m:Movie)
-                        WHERE m.`%s` IS NOT NULL
-                        RETURN m {
-                          .*,
-                          favorite: m.tmdbId IN $favorites
-                        } AS movie
-                        ORDER BY m.`%s` %s
-                        SKIP $skip
-                        LIMIT $limit
-                    """, sort, sort, params.order());
+                var query = statements.query(StatementCatalog.Template.MOVIES_BY_ACTOR, params, favoritesMode)
+                        .withParameters(withFavorites(tx, userId, Keyset.parameters(params, Map.of("id", actorId, "skip", params.skip(), "limit", params.limit()))));
 
-                return this.dbUtils.run(tx, query, Map.of("id", actorId, "skip", params.skip(), "limit", params.limit(), "favorites",favorites),
-                        row -> row.get("movie").asMap());
+                return this.dbUtils.run(tx, "MovieService.getForActor", query, row -> projection.apply(row.get("movie")));
             });
             return movies;
         }
@@ -265,27 +359,18 @@ public class MovieService {
      * @param userId
      * @return List<Movie>
      */
+    public List<Map<String,Object>> getForDirector(String directorId, Params params, String userId) {
+        return getForDirector(directorId, params, userId, Value::asMap);
+    }
+
     // tag::getForDirector[]
-    public List<Map<String,Object>> getForDirector(String directorId, Params params,String userId) {
+    public <T> List<T> getForDirector(String directorId, Params params, String userId, Function<Value, T> projection) {
         try (var session = driver.session()) {
             var movies = session.executeRead(tx -> {
-                // Get an array of IDs for the User's favorite movies
-                var favorites = getUserFavorites(tx, userId);
-                Params.Sort sort = params.sort(Params.Sort.title);
-                String query = String.format("""
-                        MATCH (:Person {tmdbId: $id})-[:DIRECTED]->(m:Movie)
-                        WHERE m.`%s` IS NOT NULL
-                        RETURN m {
-                          .*,
-                          favorite: m.tmdbId IN $favorites
-                        } AS movie
-                        ORDER BY m.`%s` %s
-                        SKIP $skip
-                        LIMIT $limit
-                    """, sort, sort, params.order());
+                var query = statements.query(StatementCatalog.Template.MOVIES_BY_DIRECTOR, params, favoritesMode)
+                        .withParameters(withFavorites(tx, userId, Keyset.parameters(params, Map.of("id", directorId, "skip", params.skip(), "limit", params.limit()))));
 
-                return this.dbUtils.run(tx, query, Map.of("id", directorId, "skip", params.skip(), "limit", params.limit(), "favorites",favorites),
-                        row -> row.get("movie").asMap());
+                return this.dbUtils.run(tx, "MovieService.getForDirector", query, row -> projection.apply(row.get("movie")));
             });
             return movies;
         }
@@ -293,9 +378,318 @@ public class MovieService {
     // end::getForDirector[]
 
 
+    /*
+     * Async variants of the methods above. They return once the query is submitted, the
+     * session is closed when the returned future completes.
+     */
+
+    public <T> CompletableFuture<List<T>> allAsync(Params params, String userId, Function<Value, T> projection) {
+        return asyncDbUtils.readAll(driver.asyncSession(), "MovieService.allAsync", moviesQuery(params),
+                tx -> withFavoritesAsync(userId, moviesParameters(params), favoritesLoader(tx, userId)),
+                row -> projection.apply(row.get("movie")));
+    }
+
+    public <T> CompletableFuture<T> findByIdAsync(String id, String userId, Function<Value, T> projection) {
+        if (detailMode == DetailMode.FANOUT) return findByIdFanOut(id, userId, projection);
+        return asyncDbUtils.readOne(driver.asyncSession(), "MovieService.findByIdAsync", new Query(findByIdQuery),
+                        tx -> withFavoritesAsync(userId, Map.of("id", id), favoritesLoader(tx, userId)),
+                        row -> projection.apply(row.get("movie")))
+                .thenApply(movie -> movie.orElseThrow(RuntimeException::new));
+    }
+
+    /**
+     * Starts the parts of the detail view on separate sessions and merges them into the
+     * same map the single statement returns.
+     */
+    private <T> CompletableFuture<T> findByIdFanOut(String id, String userId, Function<Value, T> projection) {
+        var movie = detailMovie(id);
+        var actors = detailActors(id);
+        var directors = detailDirectors(id);
+        var ratingCount = ratingCounts.getAsync(id, () -> detailRatingCount(id)).toCompletableFuture();
+        var favorite = detailFavorite(id, userId);
+        return CompletableFuture.allOf(movie, actors, directors, ratingCount, favorite).thenApply(done -> {
+            var result = new HashMap<>(movie.join().orElseThrow(RuntimeException::new));
+            result.put("actors", actors.join());
+            result.put("directors", directors.join());
+            result.put("ratingCount", ratingCount.join());
+            result.put("favorite", favorite.join());
+            return projection.apply(Values.value(result));
+        });
+    }
+
+    private static final String DETAIL_MOVIE_QUERY = """
+            MATCH (m:Movie {tmdbId: $id})
+            RETURN m {
+              .*,
+              genres: [ (m)-[:IN_GENRE]->(g) | g { .name }]
+            } AS movie
+            LIMIT 1
+            """;
+
+    private static final String DETAIL_ACTORS_QUERY = """
+            MATCH (a)-[r:ACTED_IN]->(:Movie {tmdbId: $id})
+            RETURN a { .*, role: r.role } AS actor
+            """;
+
+    private static final String DETAIL_DIRECTORS_QUERY = """
+            MATCH (d)-[:DIRECTED]->(:Movie {tmdbId: $id})
+            RETURN d { .* } AS director
+            """;
+
+    private static final String DETAIL_RATING_COUNT_QUERY = """
+            MATCH (m:Movie {tmdbId: $id})
+            RETURN coalesce(m.ratingCount, count{ (m)<-[:RATED]-() }) AS count
+            """;
+
+    private static final String DETAIL_FAVORITE_QUERY = """
+            RETURN exists { (:User {userId: $userId})-[:HAS_FAVORITE]->(:Movie {tmdbId: $id}) } AS favorite
+            """;
+
+    private CompletableFuture<Optional<Map<String, Object>>> detailMovie(String id) {
+        return asyncDbUtils.readOne(driver.asyncSession(), "MovieService.detailMovie", new Query(DETAIL_MOVIE_QUERY, Map.of("id", id)),
+                row -> row.get("movie").asMap());
+    }
+
+    private CompletableFuture<List<Map<String, Object>>> detailActors(String id) {
+        return asyncDbUtils.readAll(driver.asyncSession(), "MovieService.detailActors", new Query(DETAIL_ACTORS_QUERY, Map.of("id", id)),
+                row -> row.get("actor").asMap());
+    }
+
+    private CompletableFuture<List<Map<String, Object>>> detailDirectors(String id) {
+        return asyncDbUtils.readAll(driver.asyncSession(), "MovieService.detailDirectors", new Query(DETAIL_DIRECTORS_QUERY, Map.of("id", id)),
+                row -> row.get("director").asMap());
+    }
+
+    private CompletableFuture<Long> detailRatingCount(String id) {
+        return asyncDbUtils.readOne(driver.asyncSession(), "MovieService.detailRatingCount", new Query(DETAIL_RATING_COUNT_QUERY, Map.of("id", id)),
+                        row -> row.get("count").asLong())
+                .thenApply(count -> count.orElse(0L));
+    }
+
+    private CompletableFuture<Boolean> detailFavorite(String id, String userId) {
+        if (userId == null) return CompletableFuture.completedFuture(false);
+        if (favoritesMode == FavoritesMode.SERVER) {
+            return asyncDbUtils.readOne(driver.asyncSession(), "MovieService.detailFavorite", new Query(DETAIL_FAVORITE_QUERY, Map.of("id", id, "userId", userId)),
+                            row -> row.get("favorite").asBoolean())
+                    .thenApply(favorite -> favorite.orElse(false));
+        }
+        return favoriteIds.getAsync(userId, () -> asyncDbUtils.readAll(driver.asyncSession(), "MovieService.userFavoritesAsync", favoritesQuery(userId), row -> row.get("id").asString()))
+                .thenApply(ids -> FavoriteIdCache.contains(ids, id))
+                .toCompletableFuture();
+    }
+
+    public <T> CompletableFuture<List<T>> getSimilarMoviesAsync(String id, Params params, String userId, Function<Value, T> projection) {
+        return getSimilarMoviesRefreshedAsync(id, params, userId, projection).thenApply(Refreshed::value);
+    }
+
+    /**
+     * Like getSimilarMoviesAsync, with the refresh time of the precomputed similar movies the
+     * page was read from.
+     */
+    public <T> CompletableFuture<Refreshed<List<T>>> getSimilarMoviesRefreshedAsync(String id, Params params, String userId, Function<Value, T> projection) {
+        return similarMoviesRefreshedAtAsync().thenCompose(refreshedAt -> asyncDbUtils.readAll(driver.asyncSession(),
+                "MovieService.getSimilarMoviesAsync", new Query(similarQuery(refreshedAt)),
+                tx -> withFavoritesAsync(userId, Map.of("id", id, "skip", params.skip(), "limit", params.limit()), favoritesLoader(tx, userId)),
+                row -> projection.apply(row.get("movie")))
+                .thenApply(movies -> new Refreshed<>(movies, refreshedAt)));
+    }
+
+    private String similarQuery(Optional<ZonedDateTime> refreshedAt) {
+        if (similarMode == SimilarMode.PRECOMPUTED && refreshedAt.isEmpty()) return similarMoviesQuery;
+        return modeSimilarMoviesQuery;
+    }
+
+    /**
+     * The similar movies statement of a mode, public for benchmarks comparing the modes.
+     */
+    public static String similarMoviesQuery(SimilarMode mode, FavoritesMode favoritesMode) {
+        return switch (mode) {
+            case LIVE -> String.format("""
+                    MATCH (:Movie {tmdbId: $id})-[:IN_GENRE|ACTED_IN|DIRECTED]->()<-[:IN_GENRE|ACTED_IN|DIRECTED]-(m)
+                    WHERE m.imdbRating IS NOT NULL
+                    
+                    WITH m, count(*) AS inCommon
+                    WITH m, inCommon, m.imdbRating * inCommon AS score
+                    ORDER BY score DESC
+                    
+                    SKIP $skip
+                    LIMIT $limit
+                    
+                    RETURN m {
+                       .*,
+                       score: score,
+                       favorite: %s
+                    } AS movie
+                    """, favoritesMode.expression);
+            case PRECOMPUTED -> String.format("""
+                    MATCH (:Movie {tmdbId: $id})-[s:SIMILAR]->(m)
+                    WITH m, s.score AS score
+                    ORDER BY score DESC
+                    
+                    SKIP $skip
+                    LIMIT $limit
+                    
+                    RETURN m {
+                       .*,
+                       score: score,
+                       favorite: %s
+                    } AS movie
+                    """, favoritesMode.expression);
+            // genre weights come from the degree of the genre nodes, which is read without expanding them
+            case WEIGHTED -> String.format("""
+                    CALL { MATCH (movie:Movie) RETURN count(movie) AS movies }
+                    MATCH (source:Movie {tmdbId: $id})
+                    WITH source, [ (source)-[:IN_GENRE]->(g) | {
+                      name: g.name,
+                      weight: log(toFloat(movies) / count{ (g)<-[:IN_GENRE]-() })
+                    } ] AS genres
+                    
+                    MATCH (source)<-[:ACTED_IN|DIRECTED]-()-[:ACTED_IN|DIRECTED]->(m:Movie)
+                    WHERE m <> source AND m.imdbRating IS NOT NULL
+                    
+                    WITH m, genres, count(*) AS inCommon
+                    WITH m, inCommon, [ (m)-[:IN_GENRE]->(g) | g.name ] AS names, genres
+                    WITH m, inCommon + reduce(weight = 0.0, g IN genres |
+                      weight + CASE WHEN g.name IN names THEN g.weight ELSE 0.0 END) AS similarity
+                    WITH m, m.imdbRating * similarity AS score
+                    ORDER BY score DESC
+                    
+                    SKIP $skip
+                    LIMIT $limit
+                    
+                    RETURN m {
+                       .*,
+                       score: score,
+                       favorite: %s
+                    } AS movie
+                    """, favoritesMode.expression);
+        };
+    }
+
+    /**
+     * When the precomputed similar movies were last refreshed, empty if they never were or
+     * the service does not serve them.
+     */
+    public Optional<ZonedDateTime> similarMoviesRefreshedAt() {
+        if (similarMode != SimilarMode.PRECOMPUTED) return Optional.empty();
+        return BatchJobs.lastRefresh(driver, BatchJobs.SIMILAR_MOVIES);
+    }
+
+    /**
+     * Like similarMoviesRefreshedAt, without blocking the calling thread when the time has
+     * to be read from the database.
+     */
+    public CompletableFuture<Optional<ZonedDateTime>> similarMoviesRefreshedAtAsync() {
+        if (similarMode != SimilarMode.PRECOMPUTED) return CompletableFuture.completedFuture(Optional.empty());
+        return BatchJobs.lastRefreshAsync(driver, BatchJobs.SIMILAR_MOVIES);
+    }
+
+    public <T> CompletableFuture<List<T>> byGenreAsync(String name, Params params, String userId, Function<Value, T> projection) {
+        return listAsync("MovieService.byGenreAsync", StatementCatalog.Template.MOVIES_BY_GENRE, params, userId,
+                Map.of("name", name, "skip", params.skip(), "limit", params.limit()), projection);
+    }
+
+    public <T> CompletableFuture<List<T>> getForActorAsync(String actorId, Params params, String userId, Function<Value, T> projection) {
+        return listAsync("MovieService.getForActorAsync", StatementCatalog.Template.MOVIES_BY_ACTOR, params, userId,
+                Map.of("id", actorId, "skip", params.skip(), "limit", params.limit()), projection);
+    }
+
+    public <T> CompletableFuture<List<T>> getForDirectorAsync(String directorId, Params params, String userId, Function<Value, T> projection) {
+        return listAsync("MovieService.getForDirectorAsync", StatementCatalog.Template.MOVIES_BY_DIRECTOR, params, userId,
+                Map.of("id", directorId, "skip", params.skip(), "limit", params.limit()), projection);
+    }
+
+    private <T> CompletableFuture<List<T>> listAsync(String name, StatementCatalog.Template template, Params params, String userId,
+                                                     Map<String, Object> parameters, Function<Value, T> projection) {
+        return asyncDbUtils.readAll(driver.asyncSession(), name, statements.query(template, params, favoritesMode),
+                tx -> withFavoritesAsync(userId, Keyset.parameters(params, parameters), favoritesLoader(tx, userId)),
+                row -> projection.apply(row.get("movie")));
+    }
+
+    /**
+     * Streams the movies of the listing as the records arrive, for NDJSON exports.
+     */
+    public <T> Flux<T> allStream(Params params, String userId, Function<Value, T> projection) {
+        return reactiveDbUtils.readAll(driver, "MovieService.allStream", moviesQuery(params),
+                tx -> Mono.fromCompletionStage(() -> withFavoritesAsync(userId, moviesParameters(params),
+                        () -> reactiveDbUtils.run(tx, "MovieService.userFavoritesStream", favoritesQuery(userId), row -> row.get("id").asString()).collectList().toFuture())),
+                row -> projection.apply(row.get("movie")));
+    }
+
+    /**
+     * Whether the listing for these params is a full-text search of the titles, ordered by
+     * relevance rather than by the sort field.
+     */
+    public boolean searches(Params params) {
+        return searchMode == FullTextSearch.Mode.FULLTEXT && params.query() != null && !params.query().isBlank();
+    }
+
+    private Query moviesQuery(Params params) {
+        if (searches(params)) return new Query(searchQuery);
+        return statements.query(StatementCatalog.Template.MOVIES, params, favoritesMode);
+    }
+
+    private Map<String, Object> moviesParameters(Params params) {
+        if (searches(params)) {
+            return Map.of("index", FullTextSearch.MOVIE_TITLE, "search", FullTextSearch.prefixQuery(params.query()),
+                    "skip", params.skip(), "limit", params.limit());
+        }
+        return Keyset.parameters(params, Map.of("skip", params.skip(), "limit", params.limit()));
+    }
+
+    /**
+     * The async counterpart of withFavorites, the loader reads the favorite ids on a cache miss.
+     */
+    private CompletionStage<Map<String, Object>> withFavoritesAsync(String userId, Map<String, Object> params,
+                                                                   Supplier<CompletionStage<List<String>>> loader) {
+        var result = new HashMap<>(params);
+        if (favoritesMode == FavoritesMode.SERVER) {
+            result.put("userId", userId);
+            return CompletableFuture.completedFuture(result);
+        }
+        if (userId == null) {
+            result.put("favorites", List.of());
+            return CompletableFuture.completedFuture(result);
+        }
+        return favoriteIds.getAsync(userId, loader)
+                .thenApply(ids -> {
+                    result.put("favorites", Arrays.asList(ids));
+                    return result;
+                });
+    }
+
+    private Supplier<CompletionStage<List<String>>> favoritesLoader(AsyncTransactionContext tx, String userId) {
+        return () -> asyncDbUtils.run(tx, "MovieService.userFavoritesAsync", favoritesQuery(userId), row -> row.get("id").asString());
+    }
+
+    private static Query favoritesQuery(String userId) {
+        return new Query(USER_FAVORITES_QUERY, Map.of("userId", userId));
+    }
+
+    /**
+     * Adds the parameters used by the `favorite` expression of the current mode, either the
+     * ids of the user's favorite movies or the userId to check against within the query.
+     */
+    private Map<String, Object> withFavorites(TransactionContext tx, String userId, Map<String, Object> params) {
+        var result = new HashMap<>(params);
+        if (favoritesMode == FavoritesMode.SERVER) {
+            result.put("userId", userId);
+        } else {
+            // Get an array of IDs for the User's favorite movies
+            result.put("favorites", getUserFavorites(tx, userId));
+        }
+        return result;
+    }
+
+    private static final String USER_FAVORITES_QUERY = """
+                MATCH (u:User {userId: $userId})-[:HAS_FAVORITE]->(m)
+                RETURN m.tmdbId AS id
+                """;
+
     /**
      * This function should return a list of tmdbId properties for the movies that
      * the user has added to their 'My Favorites' list.
+     * The ids are served from the FavoriteIdCache, the query only runs on a cache miss.
      *
      * @param tx The open transaction
      * @param userId The ID of the current user
@@ -304,15 +698,10 @@ public class MovieService {
     // tag::getUserFavorites[]
     private List<String> getUserFavorites(TransactionContext tx, String userId) {
         if (userId == null) return List.of();
-        String query = """
-                MATCH (u:User {userId: $userId})-[:HAS_FAVORITE]->(m)
-                RETURN m.tmdbId AS id
-                """;
         Function<Record, String> func  = row -> row.get("id").asString();
-        return this.dbUtils.run(tx, query, Map.of("userId", userId), func);
+        var ids = favoriteIds.get(userId, () -> this.dbUtils.run(tx, "MovieService.userFavorites", USER_FAVORITES_QUERY, Map.of("userId", userId), func));
+        return Arrays.asList(ids);
 
     }
     // end::getUserFavorites[]
-
-    record Movie() {} // todo
 }
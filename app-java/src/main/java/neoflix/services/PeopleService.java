@@ -4,17 +4,51 @@ import neoflix.AppUtils;
 import neoflix.AuthUtils;
 import neoflix.Params;
 import org.neo4j.driver.Driver;
+import org.neo4j.driver.Query;
+import org.neo4j.driver.TransactionContext;
+import org.neo4j.driver.Value;
 import org.neo4j.driver.Values;
+import reactor.core.publisher.Flux;
 
+import java.time.ZonedDateTime;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 public class PeopleService {
     private final Driver driver;
     private final DbUtils dbUtils;
+    private final AsyncDbUtils asyncDbUtils;
+    private final ReactiveDbUtils reactiveDbUtils;
+    private final StatementCatalog statements = StatementCatalog.shared();
     private final List<Map<String,Object>> people;
+    private final FullTextSearch.Mode searchMode;
+    private final SimilarMode similarMode;
+
+    /**
+     * How similar people are found.
+     *
+     * LIVE expands the movies of the person and collects the credits in common with every
+     * co-worker before sorting them. PRECOMPUTED takes the top co-workers from the weighted
+     * `:WORKED_WITH` relationships written by BatchJobs.refreshWorkedWith and only collects
+     * the credits in common for the page returned. It falls back to LIVE until they have
+     * been computed.
+     * TOPK streams back only the id and the number of credits in common of every co-worker,
+     * keeps the best `skip + limit` in a bounded TopK heap, and collects the credits in
+     * common for just those in a second statement.
+     */
+    public enum SimilarMode {
+        LIVE, PRECOMPUTED, TOPK;
+
+        public static SimilarMode of(String value) {
+            if (value == null || value.isBlank()) return LIVE;
+            return SimilarMode.valueOf(value.toUpperCase());
+        }
+    }
 
     /**
      * The constructor expects an instance of the Neo4j Driver, which will be
@@ -23,9 +57,21 @@ public class PeopleService {
      * @param driver
      */
     public PeopleService(Driver driver) {
+        this(driver, FullTextSearch.Mode.of(AppUtils.getSearchMode()));
+    }
+
+    public PeopleService(Driver driver, FullTextSearch.Mode searchMode) {
+        this(driver, searchMode, SimilarMode.of(AppUtils.getSimilarPeopleMode()));
+    }
+
+    public PeopleService(Driver driver, FullTextSearch.Mode searchMode, SimilarMode similarMode) {
         this.driver = driver;
+        this.searchMode = searchMode;
+        this.similarMode = similarMode;
         this.people = AppUtils.loadFixtureList("people");
         this.dbUtils = new DbUtils();
+        this.asyncDbUtils = new AsyncDbUtils();
+        this.reactiveDbUtils = new ReactiveDbUtils();
     }
 
     /**
@@ -36,23 +82,21 @@ public class PeopleService {
      * number passed as `limit`.  The `skip` variable should be used to skip a
      * certain number of rows.
      *
+     * In full-text search mode a `q` is looked up in the full-text index instead, and the
+     * matches are ordered by their relevance `score`.
+     *
      * @param params        Used to filter on the person's name, and query parameters for pagination and ordering
      * @return List<Person>
      */
-    // tag::all[]
     public List<Map<String,Object>> all(Params params) {
+        return all(params, Value::asMap);
+    }
+
+    // tag::all[]
+    public <T> List<T> all(Params params, Function<Value, T> projection) {
         try (var session = this.driver.session()){
-            String statement = String.format("""
-                    MATCH (p:Person)
-                    WHERE $q IS null OR p.name CONTAINS $q
-                    RETURN p { .* } AS person
-                    ORDER BY p.`%s` %s
-                    SKIP $skip
-                    LIMIT $limit
-                    """, params.sort(Params.Sort.name), params.order());
-            return this.dbUtils.readAll(session, statement,
-                    Map.of("q", Objects.requireNonNullElse(params.query(), ""), "skip", params.skip(), "limit", params.limit()),
-                    row -> row.get("person").asMap());
+            var query = listQuery(params);
+            return this.dbUtils.readAll(session, "PeopleService.all", query, row -> projection.apply(row.get("person")));
         }
     }
     // end::all[]
@@ -65,19 +109,24 @@ public class PeopleService {
      * @param id   The tmdbId for the user
      * @return Person
      */
-    // tag::findById[]
     public Map<String, Object> findById(String id) {
-        // TODO: Find a user by their ID
-        try (var session = this.driver.session()){
-            String query = """
+        return findById(id, Value::asMap);
+    }
+
+    private static final String FIND_BY_ID_QUERY = """
                 MATCH (p:Person {tmdbId: $id})
                           RETURN p {
                             .*,
-                            actedCount: count { (p)-[:ACTED_IN]->() },
-                            directedCount: count { (p)-[:DIRECTED]->() }
+                            actedCount: coalesce(p.actedCount, count { (p)-[:ACTED_IN]->() }),
+                            directedCount: coalesce(p.directedCount, count { (p)-[:DIRECTED]->() })
                           } AS person
                 """;
-            return this.dbUtils.readOne(session, query, Map.of("id", id), row -> row.get("person").asMap())
+
+    // tag::findById[]
+    public <T> T findById(String id, Function<Value, T> projection) {
+        // TODO: Find a user by their ID
+        try (var session = this.driver.session()){
+            return this.dbUtils.readOne(session, "PeopleService.findById", FIND_BY_ID_QUERY, Map.of("id", id), row -> projection.apply(row.get("person")))
                     .orElseThrow(() -> new RuntimeException("Persona ID - "+ id+" not found"));
         }
     }
@@ -91,28 +140,194 @@ public class PeopleService {
      * @param params Query parameters for pagination and ordering
      * @return List<Person> similar people
      */
-    // tag::getSimilarPeople[]
     public List<Map<String,Object>> getSimilarPeople(String id, Params params) {
-        // TODO: Get a list of similar people to the person by their id
-        try (var session = this.driver.session()){
-            String query = """
+        return getSimilarPeople(id, params, Value::asMap);
+    }
+
+    private static final String SIMILAR_PEOPLE_QUERY = """
                     MATCH (:Person {tmdbId: $id})-[:ACTED_IN|DIRECTED]->(m)<-[r:ACTED_IN|DIRECTED]-(p)
                     WITH p, collect(m {.tmdbId, .title, type: type(r)}) AS inCommon
                     RETURN p {
                       .*,
-                      actedCount: count { (p)-[:ACTED_IN]->() },
-                      directedCount: count {(p)-[:DIRECTED]->() },
+                      actedCount: coalesce(p.actedCount, count { (p)-[:ACTED_IN]->() }),
+                      directedCount: coalesce(p.directedCount, count { (p)-[:DIRECTED]->() }),
                       inCommon: inCommon
                     } AS person
                     ORDER BY size(person.inCommon) DESC
                     SKIP $skip
                     LIMIT $limit
                 """;
-            return this.dbUtils.readAll(session, query,
+
+    private static final String PRECOMPUTED_SIMILAR_PEOPLE_QUERY = """
+                    MATCH (person:Person {tmdbId: $id})-[w:WORKED_WITH]-(p)
+                    WITH person, p, w.weight AS weight
+                    ORDER BY weight DESC
+                    SKIP $skip
+                    LIMIT $limit
+                    CALL {
+                      WITH person, p
+                      MATCH (person)-[:ACTED_IN|DIRECTED]->(m)<-[r:ACTED_IN|DIRECTED]-(p)
+                      RETURN collect(m {.tmdbId, .title, type: type(r)}) AS inCommon
+                    }
+                    RETURN p {
+                      .*,
+                      actedCount: coalesce(p.actedCount, count { (p)-[:ACTED_IN]->() }),
+                      directedCount: coalesce(p.directedCount, count { (p)-[:DIRECTED]->() }),
+                      inCommon: inCommon
+                    } AS person
+                    ORDER BY weight DESC
+                """;
+
+    private static final String SIMILAR_CANDIDATES_QUERY = """
+                    MATCH (:Person {tmdbId: $id})-[:ACTED_IN|DIRECTED]->(m)<-[:ACTED_IN|DIRECTED]-(p)
+                    RETURN elementId(p) AS id, count(*) AS score
+                """;
+
+    private static final String SIMILAR_WINNERS_QUERY = """
+                    MATCH (person:Person {tmdbId: $id})
+                    UNWIND range(0, size($winners) - 1) AS rank
+                    WITH person, rank, $winners[rank] AS winner
+                    MATCH (p:Person) WHERE elementId(p) = winner.id
+                    CALL {
+                      WITH person, p
+                      MATCH (person)-[:ACTED_IN|DIRECTED]->(m)<-[r:ACTED_IN|DIRECTED]-(p)
+                      RETURN collect(m {.tmdbId, .title, type: type(r)}) AS inCommon
+                    }
+                    RETURN p {
+                      .*,
+                      actedCount: coalesce(p.actedCount, count { (p)-[:ACTED_IN]->() }),
+                      directedCount: coalesce(p.directedCount, count { (p)-[:DIRECTED]->() }),
+                      inCommon: inCommon
+                    } AS person
+                    ORDER BY rank
+                """;
+
+    // tag::getSimilarPeople[]
+    public <T> List<T> getSimilarPeople(String id, Params params, Function<Value, T> projection) {
+        // TODO: Get a list of similar people to the person by their id
+        try (var session = this.driver.session()){
+            if (similarMode == SimilarMode.TOPK) {
+                return session.executeRead(tx -> {
+                    var winners = similarCandidates(tx, id, params);
+                    if (winners.isEmpty()) return List.<T>of();
+                    return this.dbUtils.run(tx, "PeopleService.similarWinners", SIMILAR_WINNERS_QUERY, Map.of("id", id, "winners", winners),
+                            row -> projection.apply(row.get("person")));
+                });
+            }
+            return this.dbUtils.readAll(session, "PeopleService.getSimilarPeople", similarQuery(similarPeopleRefreshedAt()),
                     Map.of("id", id, "skip", params.skip(), "limit", params.limit()),
-                    row -> row.get("person").asMap());
+                    row -> projection.apply(row.get("person")));
         }
     }
     // end::getSimilarPeople[]
 
+    /*
+     * Async variants of the methods above, the session is closed when the returned future completes.
+     */
+
+    public <T> CompletableFuture<List<T>> allAsync(Params params, Function<Value, T> projection) {
+        var query = listQuery(params);
+        return asyncDbUtils.readAll(driver.asyncSession(), "PeopleService.allAsync", query, row -> projection.apply(row.get("person")));
+    }
+
+    /**
+     * Streams the people of the listing as the records arrive, for NDJSON exports.
+     */
+    public <T> Flux<T> allStream(Params params, Function<Value, T> projection) {
+        var query = listQuery(params);
+        return reactiveDbUtils.readAll(driver, "PeopleService.allStream", query, row -> projection.apply(row.get("person")));
+    }
+
+    /**
+     * Streams the co-workers through a TopK heap, and returns the `{id, score}` of the page of winners.
+     */
+    private List<Map<String, Object>> similarCandidates(TransactionContext tx, String id, Params params) {
+        var top = new TopK(params.skip() + params.limit());
+        dbUtils.forEach(tx, "PeopleService.similarCandidates", new Query(SIMILAR_CANDIDATES_QUERY, Map.of("id", id)),
+                row -> top.offer(row.get("id").asString(), row.get("score").asDouble()));
+        return top.page(params.skip());
+    }
+
+    private <T> CompletableFuture<List<T>> similarWinnersAsync(String id, List<Map<String, Object>> winners,
+                                                                Function<Value, T> projection) {
+        if (winners.isEmpty()) return CompletableFuture.completedFuture(List.of());
+        return asyncDbUtils.readAll(driver.asyncSession(), "PeopleService.similarWinnersAsync", new Query(SIMILAR_WINNERS_QUERY, Map.of("id", id, "winners", winners)),
+                row -> projection.apply(row.get("person")));
+    }
+
+    private String similarQuery(Optional<ZonedDateTime> refreshedAt) {
+        if (refreshedAt.isEmpty()) return SIMILAR_PEOPLE_QUERY;
+        return PRECOMPUTED_SIMILAR_PEOPLE_QUERY;
+    }
+
+    /**
+     * When the precomputed co-workers were last refreshed, empty if they never were or
+     * the service does not serve them.
+     */
+    public Optional<ZonedDateTime> similarPeopleRefreshedAt() {
+        if (similarMode != SimilarMode.PRECOMPUTED) return Optional.empty();
+        return BatchJobs.lastRefresh(driver, BatchJobs.WORKED_WITH);
+    }
+
+    /**
+     * Like similarPeopleRefreshedAt, without blocking the calling thread when the time has
+     * to be read from the database.
+     */
+    public CompletableFuture<Optional<ZonedDateTime>> similarPeopleRefreshedAtAsync() {
+        if (similarMode != SimilarMode.PRECOMPUTED) return CompletableFuture.completedFuture(Optional.empty());
+        return BatchJobs.lastRefreshAsync(driver, BatchJobs.WORKED_WITH);
+    }
+
+    /**
+     * Whether the listing for these params is a full-text search, ordered by relevance
+     * rather than by the sort field.
+     */
+    public boolean searches(Params params) {
+        return searchMode == FullTextSearch.Mode.FULLTEXT && params.query() != null && !params.query().isBlank();
+    }
+
+    private static final String SEARCH_QUERY = """
+                    CALL db.index.fulltext.queryNodes($index, $search, {skip: $skip, limit: $limit})
+                    YIELD node AS p, score
+                    RETURN p { .*, score: score } AS person
+                    """;
+
+    private Query listQuery(Params params) {
+        if (searches(params)) {
+            return new Query(SEARCH_QUERY, Map.of("index", FullTextSearch.PERSON_NAME,
+                    "search", FullTextSearch.prefixQuery(params.query()), "skip", params.skip(), "limit", params.limit()));
+        }
+        return statements.query(StatementCatalog.Template.PEOPLE, params)
+                .withParameters(Keyset.parameters(params, Map.of("q", Objects.requireNonNullElse(params.query(), ""), "skip", params.skip(), "limit", params.limit())));
+    }
+
+    public <T> CompletableFuture<T> findByIdAsync(String id, Function<Value, T> projection) {
+        return asyncDbUtils.readOne(driver.asyncSession(), "PeopleService.findByIdAsync", new Query(FIND_BY_ID_QUERY, Map.of("id", id)),
+                        row -> projection.apply(row.get("person")))
+                .thenApply(person -> person.orElseThrow(() -> new RuntimeException("Persona ID - "+ id+" not found")));
+    }
+
+    public <T> CompletableFuture<List<T>> getSimilarPeopleAsync(String id, Params params, Function<Value, T> projection) {
+        return getSimilarPeopleRefreshedAsync(id, params, projection).thenApply(Refreshed::value);
+    }
+
+    /**
+     * Like getSimilarPeopleAsync, with the refresh time of the precomputed co-workers the
+     * page was read from.
+     */
+    public <T> CompletableFuture<Refreshed<List<T>>> getSimilarPeopleRefreshedAsync(String id, Params params, Function<Value, T> projection) {
+        if (similarMode == SimilarMode.TOPK) {
+            var top = new TopK(params.skip() + params.limit());
+            return asyncDbUtils.forEach(driver.asyncSession(), "PeopleService.similarCandidatesAsync", new Query(SIMILAR_CANDIDATES_QUERY, Map.of("id", id)),
+                            row -> top.offer(row.get("id").asString(), row.get("score").asDouble()))
+                    .thenCompose(done -> similarWinnersAsync(id, top.page(params.skip()), projection))
+                    .thenApply(people -> new Refreshed<>(people, Optional.empty()));
+        }
+        return similarPeopleRefreshedAtAsync().thenCompose(refreshedAt -> asyncDbUtils.readAll(driver.asyncSession(),
+                "PeopleService.getSimilarPeopleAsync",
+                new Query(similarQuery(refreshedAt), Map.of("id", id, "skip", params.skip(), "limit", params.limit())),
+                row -> projection.apply(row.get("person")))
+                .thenApply(people -> new Refreshed<>(people, refreshedAt)));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,150 @@
+package neoflix.services;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import neoflix.Params;
+import org.neo4j.driver.types.MapAccessor;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static neoflix.services.Projections.*;
+
+/**
+ * An actor or director. Depending on the query, the role played in a movie, the number
+ * of movies acted in or directed, or the movies in common with another person are set,
+ * and the relevance `score` for full-text searches.
+ */
+@JsonAdapter(Person.Adapter.class)
+public record Person(String tmdbId, String imdbId, String name, String bio, String bornIn, LocalDate born,
+                     LocalDate died, String poster, String url, String role, Long actedCount,
+                     Long directedCount, Long movieCount, List<Credit> inCommon, Double score) implements Params.Sortable {
+
+    /**
+     * A movie shared with another person and the type of relationship (ACTED_IN or DIRECTED).
+     */
+    public record Credit(String tmdbId, String title, String type) {
+        public static Credit from(MapAccessor row) {
+            return new Credit(string(row, "tmdbId"), string(row, "title"), string(row, "type"));
+        }
+    }
+
+    public static Person from(MapAccessor row) {
+        return new Person(
+                string(row, "tmdbId"),
+                string(row, "imdbId"),
+                string(row, "name"),
+                string(row, "bio"),
+                string(row, "bornIn"),
+                date(row, "born"),
+                date(row, "died"),
+                string(row, "poster"),
+                string(row, "url"),
+                string(row, "role"),
+                longValue(row, "actedCount"),
+                longValue(row, "directedCount"),
+                longValue(row, "movieCount"),
+                list(row, "inCommon", Credit::from),
+                doubleValue(row, "score"));
+    }
+
+    @Override
+    public Object sortValue(Params.Sort sort) {
+        return switch (sort) {
+            case name -> name;
+            case born -> born;
+            case movieCount -> movieCount;
+            default -> null;
+        };
+    }
+
+    @Override
+    public String cursorId() {
+        return tmdbId;
+    }
+
+    public static class Adapter extends TypeAdapter<Person> {
+        @Override
+        public void write(JsonWriter out, Person person) throws IOException {
+            out.beginObject();
+            out.name("tmdbId").value(person.tmdbId());
+            out.name("imdbId").value(person.imdbId());
+            out.name("name").value(person.name());
+            out.name("bio").value(person.bio());
+            out.name("bornIn").value(person.bornIn());
+            writeDate(out, "born", person.born());
+            writeDate(out, "died", person.died());
+            out.name("poster").value(person.poster());
+            out.name("url").value(person.url());
+            out.name("role").value(person.role());
+            out.name("actedCount").value(person.actedCount());
+            out.name("directedCount").value(person.directedCount());
+            out.name("movieCount").value(person.movieCount());
+            if (person.inCommon() != null) {
+                out.name("inCommon").beginArray();
+                for (Credit credit : person.inCommon()) {
+                    out.beginObject();
+                    out.name("tmdbId").value(credit.tmdbId());
+                    out.name("title").value(credit.title());
+                    out.name("type").value(credit.type());
+                    out.endObject();
+                }
+                out.endArray();
+            }
+            if (person.score() != null) out.name("score").value(person.score());
+            out.endObject();
+        }
+
+        @Override
+        public Person read(JsonReader in) throws IOException {
+            String tmdbId = null, imdbId = null, name = null, bio = null, bornIn = null,
+                    poster = null, url = null, role = null;
+            LocalDate born = null, died = null;
+            Long actedCount = null, directedCount = null, movieCount = null;
+            List<Credit> inCommon = null;
+            Double score = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "tmdbId" -> tmdbId = readString(in);
+                    case "imdbId" -> imdbId = readString(in);
+                    case "name" -> name = readString(in);
+                    case "bio" -> bio = readString(in);
+                    case "bornIn" -> bornIn = readString(in);
+                    case "born" -> born = readDate(in);
+                    case "died" -> died = readDate(in);
+                    case "poster" -> poster = readString(in);
+                    case "url" -> url = readString(in);
+                    case "role" -> role = readString(in);
+                    case "actedCount" -> actedCount = readLong(in);
+                    case "directedCount" -> directedCount = readLong(in);
+                    case "movieCount" -> movieCount = readLong(in);
+                    case "inCommon" -> inCommon = readList(in, Adapter::readCredit);
+                    case "score" -> score = readDouble(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Person(tmdbId, imdbId, name, bio, bornIn, born, died, poster, url, role,
+                    actedCount, directedCount, movieCount, inCommon, score);
+        }
+
+        private static Credit readCredit(JsonReader in) throws IOException {
+            String tmdbId = null, title = null, type = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "tmdbId" -> tmdbId = readString(in);
+                    case "title" -> title = readString(in);
+                    case "type" -> type = readString(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Credit(tmdbId, title, type);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package neoflix.services;
+
+import com.google.gson.ToNumberPolicy;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import neoflix.GsonUtils;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.types.MapAccessor;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Null-safe field accessors used by the record mappers to read single values from a
+ * driver {@link org.neo4j.driver.Record} or map {@link Value}, and the matching helpers
+ * for the hand-written Gson adapters.
+ */
+final class Projections {
+    private Projections() {}
+
+    /**
+     * Reads one JSON value, the reading side of a Gson adapter.
+     */
+    interface JsonRead<T> {
+        T read(JsonReader in) throws IOException;
+    }
+
+    static String string(MapAccessor row, String key) {
+        Value value = row.get(key);
+        if (value.isNull()) return null;
+        Object object = value.asObject();
+        return object instanceof String s ? s : object.toString();
+    }
+
+    static Long longValue(MapAccessor row, String key) {
+        Value value = row.get(key);
+        return value.isNull() ? null : value.asNumber().longValue();
+    }
+
+    static Double doubleValue(MapAccessor row, String key) {
+        Value value = row.get(key);
+        return value.isNull() ? null : value.asNumber().doubleValue();
+    }
+
+    static Number number(MapAccessor row, String key) {
+        Value value = row.get(key);
+        return value.isNull() ? null : value.asNumber();
+    }
+
+    static Boolean bool(MapAccessor row, String key) {
+        Value value = row.get(key);
+        return value.isNull() ? null : value.asBoolean();
+    }
+
+    static LocalDate date(MapAccessor row, String key) {
+        Value value = row.get(key);
+        if (value.isNull()) return null;
+        Object object = value.asObject();
+        return object instanceof LocalDate date ? date : LocalDate.parse(object.toString());
+    }
+
+    static <T> List<T> list(MapAccessor row, String key, Function<Value, T> mapper) {
+        Value value = row.get(key);
+        return value.isNull() ? null : value.asList(mapper);
+    }
+
+    static void writeDate(JsonWriter out, String name, LocalDate date) throws IOException {
+        out.name(name).value(date == null ? null : GsonUtils.formatDate(date));
+    }
+
+    static void writeStrings(JsonWriter out, String name, List<String> values) throws IOException {
+        if (values == null) return;
+        out.name(name).beginArray();
+        for (String value : values) out.value(value);
+        out.endArray();
+    }
+
+    static String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    static Long readLong(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextLong();
+    }
+
+    static Double readDouble(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextDouble();
+    }
+
+    static Number readNumber(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return ToNumberPolicy.LONG_OR_DOUBLE.readNumber(in);
+    }
+
+    static Boolean readBool(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextBoolean();
+    }
+
+    static LocalDate readDate(JsonReader in) throws IOException {
+        String date = readString(in);
+        return date == null ? null : GsonUtils.parseDate(date);
+    }
+
+    static <T> List<T> readList(JsonReader in, JsonRead<T> element) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<T> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) values.add(element.read(in));
+        in.endArray();
+        return values;
+    }
+}
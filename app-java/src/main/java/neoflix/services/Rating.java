@@ -0,0 +1,73 @@
+package neoflix.services;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import neoflix.Params;
+import org.neo4j.driver.types.MapAccessor;
+
+import java.io.IOException;
+
+import static neoflix.services.Projections.*;
+
+/**
+ * A review of a movie, the rating and timestamp of a RATED relationship and the user who rated.
+ */
+@JsonAdapter(Rating.Adapter.class)
+public record Rating(Number rating, Long timestamp, User user) implements Params.Sortable {
+
+    public static Rating from(MapAccessor row) {
+        var user = row.get("user");
+        return new Rating(number(row, "rating"), longValue(row, "timestamp"),
+                user.isNull() ? null : User.from(user));
+    }
+
+    @Override
+    public Object sortValue(Params.Sort sort) {
+        return switch (sort) {
+            case rating -> rating;
+            case timestamp -> timestamp;
+            default -> null;
+        };
+    }
+
+    @Override
+    public String cursorId() {
+        return user == null ? null : user.userId();
+    }
+
+    public static class Adapter extends TypeAdapter<Rating> {
+        private final TypeAdapter<User> users = new User.Adapter().nullSafe();
+
+        @Override
+        public void write(JsonWriter out, Rating rating) throws IOException {
+            out.beginObject();
+            out.name("rating").value(rating.rating());
+            out.name("timestamp").value(rating.timestamp());
+            if (rating.user() != null) {
+                out.name("user");
+                users.write(out, rating.user());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Rating read(JsonReader in) throws IOException {
+            Number rating = null;
+            Long timestamp = null;
+            User user = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "rating" -> rating = readNumber(in);
+                    case "timestamp" -> timestamp = readLong(in);
+                    case "user" -> user = users.read(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Rating(rating, timestamp, user);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package neoflix.services;
+
+import neoflix.AppUtils;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * A bounded cache of the number of ratings of a movie.
+ *
+ * Counting the RATED relationships of a popular movie is the slowest part of its detail
+ * view, so the count is cached per movie. Entries are evicted least-recently-used once the
+ * cache is full and expire after a TTL, and RatingService drops the entry of a movie
+ * whenever it is rated.
+ */
+public class RatingCountCache {
+    private static final RatingCountCache shared = new RatingCountCache(
+            AppUtils.getRatingCountCacheSize(), Duration.ofSeconds(AppUtils.getRatingCountCacheTtl()));
+
+    private record Entry(long count, long expiresAt) {}
+
+    private final long ttlMillis;
+    private final Map<String, Entry> entries;
+    // incremented on every write, loads that started before a write are not cached
+    private long writes;
+    private long hits;
+    private long misses;
+
+    /**
+     * The cache shared by the MovieService and RatingService instances of the app.
+     */
+    public static RatingCountCache shared() {
+        return shared;
+    }
+
+    public RatingCountCache(int maxMovies, Duration ttl) {
+        this.ttlMillis = ttl.toMillis();
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxMovies;
+            }
+        };
+    }
+
+    /**
+     * Returns the rating count of the movie, calling the loader when the movie is not
+     * cached or the entry has expired.
+     */
+    public CompletionStage<Long> getAsync(String movieId, Supplier<? extends CompletionStage<Long>> loader) {
+        long version;
+        synchronized (this) {
+            Entry entry = entries.get(movieId);
+            if (entry != null && entry.expiresAt() > System.currentTimeMillis()) {
+                hits++;
+                return CompletableFuture.completedFuture(entry.count());
+            }
+            misses++;
+            version = writes;
+        }
+        return loader.get().thenApply(count -> {
+            synchronized (this) {
+                if (version == writes) {
+                    entries.put(movieId, new Entry(count, System.currentTimeMillis() + ttlMillis));
+                }
+            }
+            return count;
+        });
+    }
+
+    /**
+     * Drops the count of a movie that was rated, the next read counts again.
+     */
+    public synchronized void rated(String movieId) {
+        writes++;
+        entries.remove(movieId);
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -5,17 +5,24 @@ import neoflix.Params;
 import neoflix.ValidationException;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
 import org.neo4j.driver.exceptions.NoSuchRecordException;
+import reactor.core.publisher.Flux;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 public class RatingService {
     private final Driver driver;
 
     private DbUtils dbUtils;
+    private final AsyncDbUtils asyncDbUtils;
+    private final ReactiveDbUtils reactiveDbUtils;
+    private final StatementCatalog statements = StatementCatalog.shared();
+    private final RatingCountCache ratingCounts = RatingCountCache.shared();
 
     /**
      * The constructor expects an instance of the Neo4j Driver, which will be
@@ -24,6 +31,8 @@ public class RatingService {
     public RatingService(Driver driver) {
         this.driver = driver;
         this.dbUtils = new DbUtils();
+        this.asyncDbUtils = new AsyncDbUtils();
+        this.reactiveDbUtils = new ReactiveDbUtils();
     }
 
     /**
@@ -41,31 +50,48 @@ public class RatingService {
      * @param {number} skip     The number of records to skip
      * @returns {Promise<Record<string, any>>}
      */
-    // tag::forMovie[]
     public List<Map<String,Object>> forMovie(String id, Params params) {
+        return forMovie(id, params, Value::asMap);
+    }
+
+    // tag::forMovie[]
+    public <T> List<T> forMovie(String id, Params params, Function<Value, T> projection) {
         // TODO: Get ratings for a Movie
         try (var session = this.driver.session()){
-            String query = String.format("""
-                    MATCH (u:User)-[r:RATED]->(m:Movie {tmdbId: $id})
-                    RETURN r {
-                        .rating,
-                        .timestamp,
-                         user: u { .id, .name }
-                    } AS review
-                    ORDER BY r.`%s` %s
-                    SKIP $skip
-                    LIMIT $limit""", params.sort(Params.Sort.timestamp), params.order());
-            return this.dbUtils.readAll(session, query, Map.of("id", id, "limit", params.limit(), "skip", params.skip()),
-                    row -> row.get("review").asMap());
+            var query = statements.query(StatementCatalog.Template.RATINGS, params)
+                    .withParameters(Keyset.parameters(params, Map.of("id", id, "limit", params.limit(), "skip", params.skip())));
+            return this.dbUtils.readAll(session, "RatingService.forMovie", query, row -> projection.apply(row.get("review")));
         }
     }
     // end::forMovie[]
 
+    /**
+     * Async variant of forMovie, the session is closed when the returned future completes.
+     */
+    public <T> CompletableFuture<List<T>> forMovieAsync(String id, Params params, Function<Value, T> projection) {
+        var query = statements.query(StatementCatalog.Template.RATINGS, params)
+                .withParameters(Keyset.parameters(params, Map.of("id", id, "limit", params.limit(), "skip", params.skip())));
+        return asyncDbUtils.readAll(driver.asyncSession(), "RatingService.forMovieAsync", query, row -> projection.apply(row.get("review")));
+    }
+
+    /**
+     * Streams the reviews of the movie as the records arrive, for NDJSON exports.
+     */
+    public <T> Flux<T> forMovieStream(String id, Params params, Function<Value, T> projection) {
+        var query = statements.query(StatementCatalog.Template.RATINGS, params)
+                .withParameters(Keyset.parameters(params, Map.of("id", id, "limit", params.limit(), "skip", params.skip())));
+        return reactiveDbUtils.readAll(driver, "RatingService.forMovieStream", query, row -> projection.apply(row.get("review")));
+    }
+
 
     /**
      * Add a relationship between a User and Movie with a `rating` property.
      * The `rating` parameter should be converted to a Neo4j Integer.
      *
+     * The `ratingCount`, `ratingSum` and `avgRating` of the movie are updated in the same
+     * transaction. When the user rated the movie before only the sum changes, and a movie
+     * without counters yet gets them computed from its ratings.
+     *
      * If the User or Movie cannot be found, a NotFoundError should be thrown
      *
      * @param {string} userId   the userId for the user
@@ -73,8 +99,12 @@ public class RatingService {
      * @param {number} rating   An integer representing the rating from 1-5
      * @returns {Promise<Record<string, any>>}  A movie object with a rating property appended
      */
-    // tag::add[]
     public Map<String,Object> add(String userId, String movieId, int rating) {
+        return add(userId, movieId, rating, Value::asMap);
+    }
+
+    // tag::add[]
+    public <T> T add(String userId, String movieId, int rating, Function<Value, T> projection) {
         // TODO: Convert the native integer into a Neo4j Integer
         // TODO: Save the rating in the database
         // TODO: Return movie details and a rating
@@ -83,15 +113,38 @@ public class RatingService {
                 MATCH (u:User {userId: $userId})
                 MATCH (m:Movie {tmdbId: $movieId})
 
+                // lock the movie before its counters are read
+                SET m._lock = true
+                REMOVE m._lock
+
+                WITH u, m
+                OPTIONAL MATCH (u)-[existing:RATED]->(m)
+                WITH u, m, existing.rating AS previous
+
                 MERGE (u)-[r:RATED]->(m)
                 SET r.rating = $rating, r.timestamp = timestamp()
 
+                WITH m, r, previous
+                SET m += CASE
+                  WHEN m.ratingCount IS NULL THEN {
+                    ratingCount: count{ (m)<-[:RATED]-() },
+                    ratingSum: reduce(sum = 0, rating IN [ (m)<-[rated:RATED]-() | rated.rating ] | sum + rating)
+                  }
+                  ELSE {
+                    ratingCount: m.ratingCount + CASE WHEN previous IS NULL THEN 1 ELSE 0 END,
+                    ratingSum: coalesce(m.ratingSum, 0) - coalesce(previous, 0) + r.rating
+                  }
+                END
+                SET m.avgRating = toFloat(m.ratingSum) / m.ratingCount
+
                 RETURN m { .*, rating: r.rating } AS movie
              """;
-            Function<Record, Map<String, Object>> movieMappingFunc = row -> row.get("movie").asMap();
-            return dbUtils.write(session, query,
+            Function<Record, T> movieMappingFunc = row -> projection.apply(row.get("movie"));
+            var movie = dbUtils.write(session, "RatingService.add", query,
                     Map.of("userId", userId, "movieId", movieId, "rating", rating),
                     movieMappingFunc);
+            ratingCounts.rated(movieId);
+            return movie;
         } catch(NoSuchRecordException e) {
             throw new ValidationException("Movie or user not found to add rating", Map.of("movie", movieId, "user", userId));
         }
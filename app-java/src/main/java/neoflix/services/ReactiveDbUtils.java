@@ -0,0 +1,64 @@
+package neoflix.services;
+
+import neoflix.Metrics;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Query;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.reactive.ReactiveTransactionContext;
+import reactor.adapter.JdkFlowAdapter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Streams query results as a Flux on a ReactiveSession, following the usingWhen pattern
+ * of the reactive example.
+ *
+ * Records are pulled from the server as the subscriber requests them, so a slow consumer
+ * slows down the query instead of records piling up in memory. The session is opened on
+ * subscription and closed when the Flux terminates or is cancelled.
+ */
+public class ReactiveDbUtils {
+
+    public <T> Flux<T> run(ReactiveTransactionContext tx, String name, Query query, Function<Record, T> mappingFunc) {
+        return timed(tx, name, query, mappingFunc);
+    }
+
+    public <T> Flux<T> readAll(Driver driver, String name, Query query, Function<Record, T> mappingFunc) {
+        return read(driver, name, tx -> Mono.just(query), mappingFunc);
+    }
+
+    /**
+     * Streams the records of a query whose parameters are only known within the transaction.
+     */
+    public <T> Flux<T> readAll(Driver driver, String name, Query query,
+                               Function<ReactiveTransactionContext, Mono<Map<String, Object>>> parameters,
+                               Function<Record, T> mappingFunc) {
+        return read(driver, name, tx -> parameters.apply(tx).map(query::withParameters), mappingFunc);
+    }
+
+    private static <T> Flux<T> read(Driver driver, String name, Function<ReactiveTransactionContext, Mono<Query>> query,
+                                    Function<Record, T> mappingFunc) {
+        return Flux.usingWhen(Mono.fromSupplier(driver::reactiveSession),
+                session -> JdkFlowAdapter.flowPublisherToFlux(session.executeRead(tx -> JdkFlowAdapter.publisherToFlowPublisher(
+                        query.apply(tx).flatMapMany(q -> timed(tx, name, q, mappingFunc))))),
+                session -> JdkFlowAdapter.<Void>flowPublisherToFlux(session.close()));
+    }
+
+    /**
+     * Runs the query, recording the same timings as DbUtils once all records were emitted.
+     */
+    private static <T> Flux<T> timed(ReactiveTransactionContext tx, String name, Query query, Function<Record, T> mappingFunc) {
+        return Mono.fromSupplier(System::nanoTime).flatMapMany(start -> JdkFlowAdapter.flowPublisherToFlux(tx.run(query))
+                .flatMap(result -> JdkFlowAdapter.flowPublisherToFlux(result.records())
+                        .map(mappingFunc)
+                        .concatWith(JdkFlowAdapter.flowPublisherToFlux(result.consume()).flatMap(summary -> {
+                            Metrics.recordQuery(name, System.nanoTime() - start,
+                                    summary.resultAvailableAfter(TimeUnit.NANOSECONDS), summary.resultConsumedAfter(TimeUnit.NANOSECONDS));
+                            return Mono.<T>empty();
+                        }))));
+    }
+}
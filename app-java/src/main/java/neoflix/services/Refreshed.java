@@ -0,0 +1,12 @@
+package neoflix.services;
+
+import java.time.ZonedDateTime;
+import java.util.Optional;
+
+/**
+ * A result together with the refresh time of the precomputed data it was read from, empty
+ * when it was computed live. Both come from the same read, so a response header built from
+ * the time matches the statement that ran.
+ */
+public record Refreshed<T>(T value, Optional<ZonedDateTime> refreshedAt) {
+}
@@ -0,0 +1,59 @@
+package neoflix.services;
+
+import org.neo4j.driver.Driver;
+
+import java.util.List;
+
+public class SearchService {
+    private final Driver driver;
+    private final DbUtils dbUtils;
+    private final SuggestionIndex index;
+
+    /**
+     * The constructor expects an instance of the Neo4j Driver, which will be
+     * used to interact with Neo4j.
+     */
+    public SearchService(Driver driver) {
+        this(driver, SuggestionIndex.shared());
+    }
+
+    public SearchService(Driver driver, SuggestionIndex index) {
+        this.driver = driver;
+        this.index = index;
+        this.dbUtils = new DbUtils();
+    }
+
+    /**
+     * Suggestions for a partial person name or movie title, answered from the
+     * SuggestionIndex without querying the database.
+     *
+     * @param q      The text typed so far
+     * @param limit  The maximum number of suggestions
+     * @return List<Suggestion>
+     */
+    public List<Suggestion> suggest(String q, int limit) {
+        if (q == null) return List.of();
+        return index.suggest(q, limit);
+    }
+
+    private static final String SUGGESTIONS_QUERY = """
+                    MATCH (p:Person) WHERE p.name IS NOT NULL
+                    RETURN 'person' AS type, p.tmdbId AS id, p.name AS name
+                    UNION ALL
+                    MATCH (m:Movie) WHERE m.title IS NOT NULL
+                    RETURN 'movie' AS type, m.tmdbId AS id, m.title AS name
+                    """;
+
+    /**
+     * Reads all person names and movie titles into the index.
+     *
+     * @return the number of names indexed
+     */
+    public int reload() {
+        try (var session = this.driver.session()) {
+            var suggestions = this.dbUtils.readAll(session, "SearchService.reload", SUGGESTIONS_QUERY, Suggestion::from);
+            index.load(suggestions);
+            return suggestions.size();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package neoflix.services;
+
+import neoflix.Params;
+import org.neo4j.driver.Query;
+
+import java.util.EnumSet;
+
+/**
+ * The Cypher statements of the sorted listings, built once for every combination of
+ * sort field, order, pagination variant and favorites mode.
+ *
+ * The sort field and order cannot be passed as parameters, so each combination is a
+ * statement of its own. Building them all up front means no statement text is formatted
+ * per request, and the server only ever sees this small, fixed set of statements.
+ */
+public final class StatementCatalog {
+    private static final int SORTS = Params.Sort.values().length;
+    private static final int ORDERS = Params.Order.values().length;
+    private static final int PAGES = Keyset.Page.values().length;
+    private static final int MODES = MovieService.FavoritesMode.values().length;
+
+    private static final StatementCatalog shared = new StatementCatalog();
+
+    /**
+     * A listing statement. In the text, `%1$s` is the sort field, `%2$s` the keyset predicate,
+     * `%3$s` the favorite expression, `%4$s` the order and `%5$s` the keyset tie-breaker.
+     */
+    public enum Template {
+        // ordered and limited before the projection, so the planner can read the range index
+        // of the sort field in order and stop after the page instead of sorting every movie
+        MOVIES(Params.MOVIE_SORT, Params.Sort.title, "m", "m.tmdbId", "AND", """
+                        MATCH (m:Movie)
+                        WHERE m.`%1$s` IS NOT NULL%2$s
+                        WITH m
+                        ORDER BY m.`%1$s` %4$s%5$s
+                        SKIP $skip
+                        LIMIT $limit
+                        RETURN m {
+                          .*,
+                          favorite: %3$s
+                        } AS movie
+                    """),
+        MOVIES_BY_GENRE(Params.MOVIE_SORT, Params.Sort.title, "m", "m.tmdbId", "AND", """
+                        MATCH (m:Movie)-[:IN_GENRE]->(:Genre {name: $name})
+                        WHERE m.`%1$s` IS NOT NULL%2$s
+                        RETURN m {
+                          .*,
+                          favorite: %3$s
+                        } AS movie
+                        ORDER BY m.`%1$s` %4$s%5$s
+                        SKIP $skip
+                        LIMIT $limit
+                    """),
+        MOVIES_BY_ACTOR(Params.MOVIE_SORT, Params.Sort.title, "m", "m.tmdbId", "AND", """
+                        MATCH (:Person {tmdbId: $id})-[:ACTED_IN]->(m:Movie)
+                        WHERE m.`%1$s` IS NOT NULL%2$s
+                        RETURN m {
+                          .*,
+                          favorite: %3$s
+                        } AS movie
+                        ORDER BY m.`%1$s` %4$s%5$s
+                        SKIP $skip
+                        LIMIT $limit
+                    """),
+        MOVIES_BY_DIRECTOR(Params.MOVIE_SORT, Params.Sort.title, "m", "m.tmdbId", "AND", """
+                        MATCH (:Person {tmdbId: $id})-[:DIRECTED]->(m:Movie)
+                        WHERE m.`%1$s` IS NOT NULL%2$s
+                        RETURN m {
+                          .*,
+                          favorite: %3$s
+                        } AS movie
+                        ORDER BY m.`%1$s` %4$s%5$s
+                        SKIP $skip
+                        LIMIT $limit
+                    """),
+        FAVORITES(Params.MOVIE_SORT, Params.Sort.title, "m", "m.tmdbId", "WHERE", """
+                MATCH (u:User {userId: $userId})-[r:HAS_FAVORITE]->(m:Movie)%2$s
+                RETURN m {
+                .*,
+                  favorite: true
+                } AS movie
+                ORDER BY m.`%1$s` %4$s%5$s
+                SKIP $skip
+                LIMIT $limit
+            """),
+        PEOPLE(Params.PEOPLE_SORT, Params.Sort.name, "p", "p.tmdbId", "AND", """
+                    MATCH (p:Person)
+                    WHERE ($q IS null OR p.name CONTAINS $q)%2$s
+                    RETURN p { .* } AS person
+                    ORDER BY p.`%1$s` %4$s%5$s
+                    SKIP $skip
+                    LIMIT $limit
+                    """),
+        RATINGS(Params.RATING_SORT, Params.Sort.timestamp, "r", "u.userId", "WHERE", """
+                    MATCH (u:User)-[r:RATED]->(m:Movie {tmdbId: $id})%2$s
+                    RETURN r {
+                        .rating,
+                        .timestamp,
+                         user: u { .userId, .name }
+                    } AS review
+                    ORDER BY r.`%1$s` %4$s%5$s
+                    SKIP $skip
+                    LIMIT $limit""");
+
+        final EnumSet<Params.Sort> sorts;
+        final Params.Sort defaultSort;
+        private final String variable;
+        private final String idKey;
+        private final String keyword;
+        private final String text;
+
+        Template(EnumSet<Params.Sort> sorts, Params.Sort defaultSort, String variable, String idKey, String keyword, String text) {
+            this.sorts = sorts;
+            this.defaultSort = defaultSort;
+            this.variable = variable;
+            this.idKey = idKey;
+            this.keyword = keyword;
+            this.text = text;
+        }
+
+        String format(Params.Sort sort, Params.Order order, Keyset.Page page, MovieService.FavoritesMode mode) {
+            String sortKey = variable + ".`" + sort + "`";
+            return String.format(text, sort, Keyset.where(keyword, page, order, sortKey, idKey),
+                    mode.expression, order, Keyset.orderBy(page, order, idKey));
+        }
+    }
+
+    private final Query[] queries;
+
+    /**
+     * The catalog shared by the services of the app.
+     */
+    public static StatementCatalog shared() {
+        return shared;
+    }
+
+    StatementCatalog() {
+        var templates = Template.values();
+        queries = new Query[templates.length * SORTS * ORDERS * PAGES * MODES];
+        for (Template template : templates) {
+            for (Params.Sort sort : template.sorts) {
+                for (Params.Order order : Params.Order.values()) {
+                    for (Keyset.Page page : Keyset.Page.values()) {
+                        for (MovieService.FavoritesMode mode : MovieService.FavoritesMode.values()) {
+                            String text = template.format(sort, order, page, mode).intern();
+                            queries[index(template, sort, order, page, mode)] = new Query(text);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static int index(Template template, Params.Sort sort, Params.Order order, Keyset.Page page, MovieService.FavoritesMode mode) {
+        return (((template.ordinal() * SORTS + sort.ordinal()) * ORDERS + order.ordinal()) * PAGES + page.ordinal()) * MODES + mode.ordinal();
+    }
+
+    /**
+     * The statement for the sort, order and pagination of the params. A sort field the
+     * template does not support falls back to its default sort.
+     */
+    public Query query(Template template, Params params, MovieService.FavoritesMode mode) {
+        return queries[index(template, sort(template, params), params.order(), Keyset.Page.of(params), mode)];
+    }
+
+    public Query query(Template template, Params params) {
+        return query(template, params, MovieService.FavoritesMode.CLIENT);
+    }
+
+    /**
+     * The sort field the statement for these params is ordered by.
+     */
+    static Params.Sort sort(Template template, Params params) {
+        Params.Sort sort = params.sort(template.defaultSort);
+        return template.sorts.contains(sort) ? sort : template.defaultSort;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Query query : queries) {
+            if (query != null) size++;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,50 @@
+package neoflix.services;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.neo4j.driver.types.MapAccessor;
+
+import java.io.IOException;
+
+import static neoflix.services.Projections.*;
+
+/**
+ * A typeahead suggestion, the name of a person or the title of a movie with its tmdbId.
+ * The type is `person` or `movie`.
+ */
+@JsonAdapter(Suggestion.Adapter.class)
+public record Suggestion(String type, String id, String name) {
+
+    public static Suggestion from(MapAccessor row) {
+        return new Suggestion(string(row, "type"), string(row, "id"), string(row, "name"));
+    }
+
+    public static class Adapter extends TypeAdapter<Suggestion> {
+        @Override
+        public void write(JsonWriter out, Suggestion suggestion) throws IOException {
+            out.beginObject();
+            out.name("type").value(suggestion.type());
+            out.name("id").value(suggestion.id());
+            out.name("name").value(suggestion.name());
+            out.endObject();
+        }
+
+        @Override
+        public Suggestion read(JsonReader in) throws IOException {
+            String type = null, id = null, name = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "type" -> type = readString(in);
+                    case "id" -> id = readString(in);
+                    case "name" -> name = readString(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Suggestion(type, id, name);
+        }
+    }
+}
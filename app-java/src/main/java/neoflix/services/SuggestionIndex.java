@@ -0,0 +1,152 @@
+package neoflix.services;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory typeahead index over person names and movie titles.
+ *
+ * A name is indexed under every word it contains, so `han` finds both Hannah and Tom Hanks.
+ * The keys are normalized to lower case without accents and kept sorted in a single char[]
+ * with an offset per key, so a lookup is a binary search for the first key with the prefix
+ * followed by a scan over the matching keys, without allocating a String per key.
+ * Whole names and the words inside them are kept as separate key sets, so the names that
+ * start with the prefix are found without scanning past the words of other names.
+ *
+ * The index is immutable, `load` builds a new one and swaps it in while lookups continue
+ * on the previous one.
+ */
+public class SuggestionIndex {
+    private static final SuggestionIndex shared = new SuggestionIndex();
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private record Key(String text, int item) {}
+
+    /**
+     * Sorted keys, key `k` is `chars[offsets[k]..offsets[k + 1]]` and indexes `items[k]`.
+     */
+    private record Keys(char[] chars, int[] offsets, int[] items) {
+        int size() {
+            return items.length;
+        }
+    }
+
+    private record Snapshot(Suggestion[] items, Keys names, Keys words) {}
+
+    private volatile Snapshot snapshot = build(List.of());
+
+    /**
+     * The index shared by the SearchService instances of the app.
+     */
+    public static SuggestionIndex shared() {
+        return shared;
+    }
+
+    public void load(List<Suggestion> suggestions) {
+        snapshot = build(suggestions);
+    }
+
+    public int size() {
+        return snapshot.items().length;
+    }
+
+    static String normalize(String text) {
+        var decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static Snapshot build(List<Suggestion> suggestions) {
+        var items = suggestions.toArray(Suggestion[]::new);
+        var names = new ArrayList<Key>(items.length);
+        var words = new ArrayList<Key>(items.length);
+        for (int i = 0; i < items.length; i++) {
+            String name = normalize(items[i].name()).strip();
+            for (int start = 0; start < name.length(); start++) {
+                boolean wordStart = Character.isLetterOrDigit(name.charAt(start))
+                        && (start == 0 || !Character.isLetterOrDigit(name.charAt(start - 1)));
+                if (wordStart) (start == 0 ? names : words).add(new Key(name.substring(start), i));
+            }
+        }
+        return new Snapshot(items, keys(names), keys(words));
+    }
+
+    private static Keys keys(List<Key> keys) {
+        keys.sort((a, b) -> a.text().compareTo(b.text()));
+
+        int length = 0;
+        for (Key key : keys) length += key.text().length();
+        var chars = new char[length];
+        var offsets = new int[keys.size() + 1];
+        var items = new int[keys.size()];
+        int offset = 0;
+        for (int k = 0; k < keys.size(); k++) {
+            Key key = keys.get(k);
+            key.text().getChars(0, key.text().length(), chars, offset);
+            offsets[k] = offset;
+            offset += key.text().length();
+            items[k] = key.item();
+        }
+        offsets[keys.size()] = offset;
+        return new Keys(chars, offsets, items);
+    }
+
+    /**
+     * Up to `limit` suggestions whose name has a word starting with the prefix. Names that
+     * start with the prefix come first, each group in alphabetical order.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        var index = snapshot;
+        String p = normalize(prefix).strip();
+        if (p.isEmpty() || limit <= 0) return List.of();
+
+        var seen = new BitSet(index.items().length);
+        var suggestions = new ArrayList<Suggestion>(limit);
+        char[] chars = p.toCharArray();
+        collect(index, index.names(), chars, limit, seen, suggestions);
+        collect(index, index.words(), chars, limit, seen, suggestions);
+        return suggestions;
+    }
+
+    /**
+     * Adds the items of the keys with the prefix that were not added yet, until there are `limit`.
+     */
+    private static void collect(Snapshot index, Keys keys, char[] prefix, int limit,
+                                BitSet seen, List<Suggestion> suggestions) {
+        for (int k = lowerBound(keys, prefix); suggestions.size() < limit && k < keys.size() && startsWith(keys, k, prefix); k++) {
+            int item = keys.items()[k];
+            if (seen.get(item)) continue;
+            seen.set(item);
+            suggestions.add(index.items()[item]);
+        }
+    }
+
+    /**
+     * The first key that is not less than the prefix.
+     */
+    private static int lowerBound(Keys keys, char[] prefix) {
+        int low = 0, high = keys.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(keys, mid, prefix) < 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private static int compare(Keys keys, int key, char[] text) {
+        int start = keys.offsets()[key];
+        return Arrays.compare(keys.chars(), start, keys.offsets()[key + 1], text, 0, text.length);
+    }
+
+    private static boolean startsWith(Keys keys, int key, char[] prefix) {
+        int start = keys.offsets()[key];
+        int length = keys.offsets()[key + 1] - start;
+        return length >= prefix.length
+                && Arrays.equals(keys.chars(), start, start + prefix.length, prefix, 0, prefix.length);
+    }
+}
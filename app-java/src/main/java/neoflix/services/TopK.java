@@ -0,0 +1,97 @@
+package neoflix.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the `k` highest scored ids of a stream of candidates.
+ *
+ * The candidates are held in a fixed-size min-heap over primitive scores, so the lowest of
+ * the current top `k` is at the root and each further candidate costs one comparison, or
+ * O(log k) when it makes it in. Memory stays at `k` entries however many candidates there
+ * are. Ties are broken by id, so the selection does not depend on the order of the stream.
+ */
+public final class TopK {
+    private final double[] scores;
+    private final String[] ids;
+    private int size;
+
+    public TopK(int k) {
+        this.scores = new double[Math.max(k, 0)];
+        this.ids = new String[scores.length];
+    }
+
+    public void offer(String id, double score) {
+        if (scores.length == 0) return;
+        if (size < scores.length) {
+            scores[size] = score;
+            ids[size] = id;
+            siftUp(size++);
+        } else if (less(scores[0], ids[0], score, id)) {
+            scores[0] = score;
+            ids[0] = id;
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The ids and scores kept after the first `skip`, highest score first, as the
+     * `{id, score}` maps of a `$winners` parameter. The heap is emptied.
+     */
+    public List<Map<String, Object>> page(int skip) {
+        // the heap pops the lowest first
+        var ranked = new ArrayList<Map<String, Object>>(size);
+        while (size > 0) {
+            ranked.add(Map.of("id", ids[0], "score", scores[0]));
+            size--;
+            scores[0] = scores[size];
+            ids[0] = ids[size];
+            ids[size] = null;
+            siftDown(0);
+        }
+        Collections.reverse(ranked);
+        ranked.subList(0, Math.min(Math.max(skip, 0), ranked.size())).clear();
+        return ranked;
+    }
+
+    // a is ranked below b
+    private static boolean less(double scoreA, String idA, double scoreB, String idB) {
+        int order = Double.compare(scoreA, scoreB);
+        return order != 0 ? order < 0 : idA.compareTo(idB) > 0;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(scores[i], ids[i], scores[parent], ids[parent])) return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1, right = left + 1, lowest = i;
+            if (left < size && less(scores[left], ids[left], scores[lowest], ids[lowest])) lowest = left;
+            if (right < size && less(scores[right], ids[right], scores[lowest], ids[lowest])) lowest = right;
+            if (lowest == i) return;
+            swap(i, lowest);
+            i = lowest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+        String id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+    }
+}
@@ -0,0 +1,49 @@
+package neoflix.services;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.neo4j.driver.types.MapAccessor;
+
+import java.io.IOException;
+
+import static neoflix.services.Projections.*;
+
+/**
+ * The public properties of a User, the password is never projected.
+ */
+@JsonAdapter(User.Adapter.class)
+public record User(String userId, String email, String name) {
+
+    public static User from(MapAccessor row) {
+        return new User(string(row, "userId"), string(row, "email"), string(row, "name"));
+    }
+
+    public static class Adapter extends TypeAdapter<User> {
+        @Override
+        public void write(JsonWriter out, User user) throws IOException {
+            out.beginObject();
+            out.name("userId").value(user.userId());
+            out.name("email").value(user.email());
+            out.name("name").value(user.name());
+            out.endObject();
+        }
+
+        @Override
+        public User read(JsonReader in) throws IOException {
+            String userId = null, email = null, name = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "userId" -> userId = readString(in);
+                    case "email" -> email = readString(in);
+                    case "name" -> name = readString(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new User(userId, email, name);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package neoflix;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AppUtilsTest {
+    private static final List<String> properties = List.of("NEO4J_MAX_POOL_SIZE", "NEO4J_MAX_CONNECTION_LIFETIME",
+            "NEO4J_CONNECTION_ACQUISITION_TIMEOUT", "NEO4J_FETCH_SIZE", "NEO4J_LIVENESS_CHECK_TIMEOUT");
+
+    @AfterEach
+    void clearProperties() {
+        properties.forEach(System::clearProperty);
+    }
+
+    @Test
+    void driverConfigReadsPoolSettings() {
+        System.setProperty("NEO4J_MAX_POOL_SIZE", "200");
+        System.setProperty("NEO4J_MAX_CONNECTION_LIFETIME", "1800");
+        System.setProperty("NEO4J_CONNECTION_ACQUISITION_TIMEOUT", "20");
+        System.setProperty("NEO4J_FETCH_SIZE", "500");
+        System.setProperty("NEO4J_LIVENESS_CHECK_TIMEOUT", "60");
+
+        var config = AppUtils.getDriverConfig();
+        assertTrue(config.isMetricsEnabled());
+        assertEquals(200, config.maxConnectionPoolSize());
+        assertEquals(1_800_000, config.maxConnectionLifetimeMillis());
+        assertEquals(20_000, config.connectionAcquisitionTimeoutMillis());
+        assertEquals(500, config.fetchSize());
+        assertEquals(60_000, config.idleTimeBeforeConnectionTest());
+    }
+
+    @Test
+    void driverConfigKeepsDefaultsForUnsetProperties() {
+        System.setProperty("NEO4J_LIVENESS_CHECK_TIMEOUT", "-1");
+
+        var config = AppUtils.getDriverConfig();
+        var defaults = org.neo4j.driver.Config.defaultConfig();
+        assertTrue(config.isMetricsEnabled());
+        assertEquals(defaults.maxConnectionPoolSize(), config.maxConnectionPoolSize());
+        assertEquals(defaults.fetchSize(), config.fetchSize());
+        assertEquals(defaults.idleTimeBeforeConnectionTest(), config.idleTimeBeforeConnectionTest());
+    }
+}
@@ -0,0 +1,48 @@
+package neoflix;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthUtilsTest {
+
+    @Test
+    void verifySignedTokenAndCacheIt() {
+        var authUtils = new AuthUtils("test-secret", 10);
+        var token = authUtils.sign("user-1", Map.of("name", "Test User"));
+
+        assertEquals("user-1", authUtils.verify(token));
+        assertEquals(0, authUtils.tokenCacheHits());
+        assertEquals(1, authUtils.tokenCacheMisses());
+
+        assertEquals("user-1", authUtils.verify(token));
+        assertEquals(1, authUtils.tokenCacheHits());
+        assertEquals(1, authUtils.tokenCacheMisses());
+    }
+
+    @Test
+    void rejectTokenSignedWithOtherSecret() {
+        var token = new AuthUtils("other-secret", 10).sign("user-1", Map.of());
+        var authUtils = new AuthUtils("test-secret", 10);
+
+        assertThrows(JWTVerificationException.class, () -> authUtils.verify(token));
+        assertEquals(0, authUtils.tokenCacheSize(), "invalid tokens are not cached");
+    }
+
+    @Test
+    void tokenCacheIsBounded() {
+        var authUtils = new AuthUtils("test-secret", 2);
+        for (int i = 0; i < 5; i++) {
+            authUtils.verify(authUtils.sign("user-" + i, Map.of()));
+        }
+        assertEquals(2, authUtils.tokenCacheSize());
+    }
+
+    @Test
+    void sameInstancePerSecret() {
+        assertSame(AuthUtils.forSecret("shared-secret"), AuthUtils.forSecret("shared-secret"));
+    }
+}
@@ -0,0 +1,66 @@
+package neoflix;
+
+import neoflix.services.FavoriteIdCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FavoriteIdCacheTest {
+
+    @Test
+    void loadOnceAndServeSortedIds() {
+        var cache = new FavoriteIdCache(10, Duration.ofMinutes(5));
+        var loads = new AtomicInteger();
+
+        var ids = cache.get("user", () -> { loads.incrementAndGet(); return List.of("862", "100", "680"); });
+        assertArrayEquals(new String[]{"100", "680", "862"}, ids);
+
+        cache.get("user", () -> { loads.incrementAndGet(); return List.of(); });
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+        assertTrue(FavoriteIdCache.contains(ids, "680"));
+        assertFalse(FavoriteIdCache.contains(ids, "13"));
+    }
+
+    @Test
+    void writeThroughAddAndRemove() {
+        var cache = new FavoriteIdCache(10, Duration.ofMinutes(5));
+        cache.get("user", () -> List.of("100", "862"));
+
+        cache.added("user", "680");
+        assertArrayEquals(new String[]{"100", "680", "862"}, cache.get("user", List::of));
+
+        cache.removed("user", "100");
+        assertArrayEquals(new String[]{"680", "862"}, cache.get("user", List::of));
+    }
+
+    @Test
+    void loadStartedBeforeWriteIsNotCached() {
+        var cache = new FavoriteIdCache(10, Duration.ofMinutes(5));
+        cache.get("user", () -> {
+            // another request adds a favorite while this load is running
+            cache.added("user", "680");
+            return List.of("100");
+        });
+        assertArrayEquals(new String[]{"100", "680"}, cache.get("user", () -> List.of("100", "680")));
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    void expiredAndEvictedEntriesAreReloaded() {
+        var expiring = new FavoriteIdCache(10, Duration.ZERO);
+        expiring.get("user", () -> List.of("100"));
+        assertArrayEquals(new String[0], expiring.get("user", List::of));
+
+        var bounded = new FavoriteIdCache(1, Duration.ofMinutes(5));
+        bounded.get("first", () -> List.of("100"));
+        bounded.get("second", () -> List.of("680"));
+        assertEquals(1, bounded.size());
+        assertArrayEquals(new String[0], bounded.get("first", List::of));
+    }
+}
@@ -0,0 +1,28 @@
+package neoflix;
+
+import neoflix.services.FullTextSearch;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FullTextSearchTest {
+
+    @Test
+    void prefixQueryMatchesEveryWord() {
+        assertEquals("tom* AND ha*", FullTextSearch.prefixQuery("  Tom   Ha "));
+        assertEquals("keanu*", FullTextSearch.prefixQuery("Keanu"));
+    }
+
+    @Test
+    void luceneSyntaxIsEscaped() {
+        assertEquals("ac\\/dc*", FullTextSearch.prefixQuery("AC/DC"));
+        assertEquals("\\(500\\)* AND days*", FullTextSearch.prefixQuery("(500) Days"));
+        assertEquals("a\\:b\\*\\?*", FullTextSearch.prefixQuery("a:b*?"));
+    }
+
+    @Test
+    void modeDefaultsToContains() {
+        assertEquals(FullTextSearch.Mode.CONTAINS, FullTextSearch.Mode.of(null));
+        assertEquals(FullTextSearch.Mode.FULLTEXT, FullTextSearch.Mode.of("fulltext"));
+    }
+}
@@ -0,0 +1,71 @@
+package neoflix;
+
+import neoflix.services.Genre;
+import neoflix.services.GenreCatalog;
+import org.junit.jupiter.api.Test;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenreCatalogTest {
+
+    private static List<Value> genres(long actionMovies) {
+        return List.of(
+                Values.value(Map.of("name", "Action", "movies", actionMovies, "poster", "action.jpg")),
+                Values.value(Map.of("name", "Western", "movies", 20L, "poster", "western.jpg")));
+    }
+
+    @Test
+    void serveFromMemoryUntilExpired() {
+        var catalog = new GenreCatalog(Duration.ofMinutes(5));
+        var loads = new AtomicInteger();
+
+        var first = catalog.get(() -> { loads.incrementAndGet(); return genres(10); });
+        var second = catalog.get(() -> { loads.incrementAndGet(); return genres(11); });
+        assertEquals(1, loads.get());
+        assertSame(first, second);
+        assertEquals(List.of("Action", "Western"), second.all(Genre::from).stream().map(Genre::name).toList());
+        assertEquals(10L, second.find("Action", Genre::from).orElseThrow().movies());
+        assertTrue(second.find("Horror", Genre::from).isEmpty());
+
+    }
+
+    @Test
+    void reloadedSnapshotHasNewTag() {
+        var catalog = new GenreCatalog(Duration.ZERO);
+        var first = catalog.get(() -> genres(10));
+        var second = catalog.get(() -> genres(11));
+        assertEquals(11L, second.find("Action", Genre::from).orElseThrow().movies());
+        assertNotEquals(first.etag(), second.etag());
+    }
+
+    @Test
+    void etagDependsOnContentOnly() {
+        assertEquals(new GenreCatalog(Duration.ZERO).get(() -> genres(10)).etag(),
+                new GenreCatalog(Duration.ZERO).get(() -> genres(10)).etag());
+    }
+
+    @Test
+    void expiredSnapshotServedWhileReloading() {
+        var catalog = new GenreCatalog(Duration.ofMillis(1));
+        var first = catalog.get(() -> genres(10));
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        var pending = new CompletableFuture<List<Value>>();
+        assertSame(first, catalog.getAsync(() -> pending).join());
+
+        pending.complete(genres(12));
+        assertEquals(12L, catalog.getAsync(() -> CompletableFuture.completedFuture(genres(13))).join()
+                .find("Action", Genre::from).orElseThrow().movies());
+    }
+}
@@ -0,0 +1,57 @@
+package neoflix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsAreContiguousAndWithinPrecision() {
+        for (long micros = 1; micros < 1L << 30; micros = micros * 3 / 2 + 1) {
+            int index = LatencyHistogram.index(micros);
+            assertTrue(LatencyHistogram.upperBound(index) > micros, "upper bound above " + micros);
+            long lower = index == 0 ? 0 : LatencyHistogram.upperBound(index - 1);
+            assertTrue(lower <= micros, "lower bound below " + micros);
+            assertTrue(LatencyHistogram.upperBound(index) - lower <= Math.max(1, micros / 8 + 1), "precision at " + micros);
+        }
+    }
+
+    @Test
+    void percentilesAndPowerOfTwoBuckets() {
+        var histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1_000_000L); // 1ms .. 100ms
+        }
+        assertEquals(100, histogram.count());
+        long p50 = histogram.percentile(0.5);
+        assertTrue(p50 >= 50_000 && p50 <= 50_000 * 9 / 8, "p50 " + p50);
+        long p99 = histogram.percentile(0.99);
+        assertTrue(p99 >= 99_000 && p99 <= 99_000 * 9 / 8, "p99 " + p99);
+        assertEquals(32, histogram.countBelow(1 << 15)); // 32.768ms
+        assertEquals(100, histogram.countBelow(Long.MAX_VALUE));
+    }
+
+    @Test
+    void prometheusHistogramIsCumulative() {
+        var histogram = new LatencyHistogram();
+        histogram.record(100_000);
+        histogram.record(2_000_000_000L);
+        var out = new StringBuilder();
+        Metrics.writeHistograms(out, "test_seconds", "Test", "group", Map.of("movies", histogram));
+        var text = out.toString();
+        assertTrue(text.contains("# TYPE test_seconds histogram"));
+        assertTrue(text.contains("test_seconds_bucket{group=\"movies\",le=\"1.28E-4\"} 1"));
+        assertTrue(text.contains("test_seconds_bucket{group=\"movies\",le=\"+Inf\"} 2"));
+        assertTrue(text.contains("test_seconds_count{group=\"movies\"} 2"));
+    }
+
+    @Test
+    void routeGroupsFromPath() {
+        assertEquals("movies", Metrics.routeGroup("/api/movies/123/ratings"));
+        assertEquals("people", Metrics.routeGroup("/api/people"));
+        assertEquals("other", Metrics.routeGroup("/api/unknown"));
+    }
+}
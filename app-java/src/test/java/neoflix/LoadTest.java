@@ -0,0 +1,96 @@
+package neoflix;
+
+import io.javalin.Javalin;
+import org.eclipse.jetty.server.Server;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares throughput and p99 latency of Jetty's thread pool with the virtual thread mode.
+ *
+ * Only runs with -Dloadtest=true. By default two servers are started whose handler blocks
+ * for 50ms, like a handler waiting on a driver call. With -Dloadtest.url the requests go
+ * to a running app instead, start it once with VIRTUAL_THREADS=false and once with true.
+ * The throughput and latencies of each mode are published as report entries of the test.
+ *
+ *   mvn test -Dtest=LoadTest -Dloadtest=true -Dloadtest.concurrency=1000
+ */
+class LoadTest {
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 1000);
+    private static final int REQUESTS = Integer.getInteger("loadtest.requests", 20 * CONCURRENCY);
+    private static final long BLOCK_MILLIS = 50;
+
+    @Test
+    void compareThreadPoolWithVirtualThreads(TestReporter reporter) throws Exception {
+        Assumptions.assumeTrue(Boolean.getBoolean("loadtest"));
+
+        String url = System.getProperty("loadtest.url");
+        if (url != null) {
+            report(reporter, "app", run(URI.create(url)));
+            return;
+        }
+        for (boolean virtual : new boolean[]{false, true}) {
+            var app = Javalin.create(config -> {
+                if (virtual) config.server(() -> new Server(new VirtualThreadPool()));
+            }).get("/block", ctx -> {
+                Thread.sleep(BLOCK_MILLIS);
+                ctx.result("ok");
+            }).start(0);
+            try {
+                run(URI.create("http://localhost:" + app.port() + "/block")); // warm up
+                report(reporter, virtual ? "virtual threads" : "thread pool", run(URI.create("http://localhost:" + app.port() + "/block")));
+            } finally {
+                app.stop();
+            }
+        }
+    }
+
+    private record Result(LatencyHistogram latencies, long nanos, int errors) {}
+
+    private static Result run(URI uri) throws InterruptedException {
+        var client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
+        var latencies = new LatencyHistogram();
+        var remaining = new AtomicInteger(REQUESTS);
+        var errors = new AtomicInteger();
+        long start = System.nanoTime();
+        try (var clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CONCURRENCY; i++) {
+                clients.submit(() -> {
+                    var request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).build();
+                    while (remaining.getAndDecrement() > 0) {
+                        long sent = System.nanoTime();
+                        try {
+                            var response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) errors.incrementAndGet();
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies.record(System.nanoTime() - sent);
+                    }
+                });
+            }
+        }
+        return new Result(latencies, System.nanoTime() - start, errors.get());
+    }
+
+    private static void report(TestReporter reporter, String mode, Result result) {
+        double seconds = result.nanos() / 1e9;
+        String summary = String.format("%d connections: %.0f req/s, p50 %.1fms, p99 %.1fms, errors %d",
+                CONCURRENCY, result.latencies().count() / seconds,
+                result.latencies().percentile(0.5) / 1000.0, result.latencies().percentile(0.99) / 1000.0,
+                result.errors());
+        reporter.publishEntry(mode, summary);
+        assertEquals(0, result.errors(), mode + " failed requests, " + summary);
+    }
+}
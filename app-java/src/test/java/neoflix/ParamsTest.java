@@ -0,0 +1,55 @@
+package neoflix;
+
+import neoflix.services.Movie;
+import org.junit.jupiter.api.Test;
+import org.neo4j.driver.Values;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParamsTest {
+
+    @Test
+    void cursorRoundTripsSortValueAndId() {
+        for (Object after : List.of(42L, 8.2, LocalDate.of(1998, 8, 28), "Apollo 13", "a:b\\nc")) {
+            var cursor = new Params.Cursor(after, "31");
+            assertEquals(cursor, Params.Cursor.decode(cursor.encode()));
+        }
+        assertTrue(Params.Cursor.decode("").isStart());
+    }
+
+    @Test
+    void intParamsFallBackToDefaultAndRejectMalformedValues() {
+        assertEquals(6, Params.parseInt("limit", null, 6));
+        assertEquals(6, Params.parseInt("limit", "", 6));
+        assertEquals(20, Params.parseInt("limit", " 20 ", 6));
+        assertThrows(ValidationException.class, () -> Params.parseInt("limit", "ten", 6));
+    }
+
+    @Test
+    void invalidCursorIsRejected() {
+        assertThrows(ValidationException.class, () -> Params.Cursor.decode("not a cursor"));
+        assertThrows(ValidationException.class, () -> Params.Cursor.decode("eDpmb28KMQ"));
+    }
+
+    @Test
+    void nextCursorOnlyForFullKeysetPages() {
+        var page = IntStream.range(0, 3)
+                .mapToObj(i -> Movie.from(Values.value(Map.of("tmdbId", "id" + i, "title", "Title " + i))))
+                .toList();
+
+        var offset = new Params(null, Params.Sort.title, Params.Order.ASC, 3, 0);
+        assertNull(offset.nextCursor(page));
+
+        var keyset = new Params(null, Params.Sort.title, Params.Order.ASC, 3, 0, Params.Cursor.START);
+        var next = Params.Cursor.decode(keyset.nextCursor(page));
+        assertEquals(new Params.Cursor("Title 2", "id2"), next);
+
+        var lastPage = new Params(null, Params.Sort.title, Params.Order.ASC, 4, 0, next);
+        assertNull(lastPage.nextCursor(page));
+    }
+}
@@ -0,0 +1,83 @@
+package neoflix;
+
+import com.google.gson.JsonParser;
+import neoflix.services.Movie;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the typed Movie record writes the same JSON as the Map (asMap) it replaces, and
+ * compares the bytes allocated per row by either projection.
+ */
+class ProjectionAllocationTest {
+    private static final int ROWS = 20_000;
+
+    private static final Value movieRow = Values.value(Map.ofEntries(
+            Map.entry("tmdbId", "100"),
+            Map.entry("title", "Lock, Stock & Two Smoking Barrels"),
+            Map.entry("plot", "A botched card game in London triggers four friends, thugs, weed-growers, hard gangsters, loan sharks and debt collectors to collide with each other in a series of unexpected events."),
+            Map.entry("poster", "https://image.tmdb.org/t/p/w440_and_h660_face/8kSerJrhrJWKLk1LViesGcnrUPE.jpg"),
+            Map.entry("url", "https://themoviedb.org/movie/100"),
+            Map.entry("released", LocalDate.of(1998, 8, 28)),
+            Map.entry("year", 1998L),
+            Map.entry("runtime", 105L),
+            Map.entry("imdbRating", 8.2),
+            Map.entry("imdbVotes", 435385L),
+            Map.entry("budget", 1350000L),
+            Map.entry("revenue", 3897569L),
+            Map.entry("languages", List.of("English")),
+            Map.entry("countries", List.of("UK")),
+            Map.entry("favorite", false)));
+
+    @Test
+    void typedProjectionWritesTheSameJson() {
+        var gson = GsonUtils.gson();
+        var movie = Movie.from(movieRow);
+        assertEquals(JsonParser.parseString(gson.toJson(movieRow.asMap())), JsonParser.parseString(gson.toJson(movie)));
+        assertEquals(movie, gson.fromJson(gson.toJson(movie), Movie.class));
+    }
+
+    /**
+     * Allocation counts depend on the JIT and escape analysis, so this only runs with
+     * -Dbenchmark=true.
+     */
+    @Test
+    void typedProjectionAllocatesLessThanMap() {
+        Assumptions.assumeTrue(Boolean.getBoolean("benchmark"));
+        var threads = ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        var bean = (com.sun.management.ThreadMXBean) threads;
+
+        // warm up both paths before measuring
+        bytesPerRow(bean, Value::asMap);
+        bytesPerRow(bean, Movie::from);
+
+        long mapBytes = bytesPerRow(bean, Value::asMap);
+        long recordBytes = bytesPerRow(bean, Movie::from);
+
+        assertTrue(recordBytes < mapBytes, "record projection allocates less than asMap");
+    }
+
+    private static long bytesPerRow(com.sun.management.ThreadMXBean bean, Function<Value, Object> projection) {
+        long threadId = Thread.currentThread().threadId();
+        Object sink = null;
+        long before = bean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ROWS; i++) {
+            sink = projection.apply(movieRow);
+        }
+        long after = bean.getThreadAllocatedBytes(threadId);
+        assertTrue(sink != null);
+        return (after - before) / ROWS;
+    }
+}
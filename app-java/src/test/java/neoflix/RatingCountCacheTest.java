@@ -0,0 +1,54 @@
+package neoflix;
+
+import neoflix.services.RatingCountCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RatingCountCacheTest {
+
+    @Test
+    void loadOnceUntilRated() {
+        var cache = new RatingCountCache(10, Duration.ofMinutes(5));
+        var loads = new AtomicInteger();
+
+        assertEquals(42L, cache.getAsync("100", () -> { loads.incrementAndGet(); return CompletableFuture.completedFuture(42L); })
+                .toCompletableFuture().join());
+        assertEquals(42L, cache.getAsync("100", () -> { loads.incrementAndGet(); return CompletableFuture.completedFuture(0L); })
+                .toCompletableFuture().join());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.hits());
+
+        cache.rated("100");
+        assertEquals(43L, cache.getAsync("100", () -> CompletableFuture.completedFuture(43L)).toCompletableFuture().join());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    void loadStartedBeforeRatingIsNotCached() {
+        var cache = new RatingCountCache(10, Duration.ofMinutes(5));
+        var pending = new CompletableFuture<Long>();
+        var count = cache.getAsync("100", () -> pending);
+
+        cache.rated("100");
+        pending.complete(42L);
+        assertEquals(42L, count.toCompletableFuture().join());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void expiredAndEvictedEntriesAreReloaded() {
+        var expiring = new RatingCountCache(10, Duration.ZERO);
+        expiring.getAsync("100", () -> CompletableFuture.completedFuture(1L));
+        assertEquals(2L, expiring.getAsync("100", () -> CompletableFuture.completedFuture(2L)).toCompletableFuture().join());
+
+        var bounded = new RatingCountCache(1, Duration.ofMinutes(5));
+        bounded.getAsync("100", () -> CompletableFuture.completedFuture(1L));
+        bounded.getAsync("862", () -> CompletableFuture.completedFuture(2L));
+        assertEquals(1, bounded.size());
+    }
+}
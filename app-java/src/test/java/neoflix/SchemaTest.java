@@ -0,0 +1,43 @@
+package neoflix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaTest {
+    // computed per query rather than stored, so there is nothing to index
+    private static final EnumSet<Params.Sort> COMPUTED = EnumSet.of(Params.Sort.score);
+
+    @Test
+    void everySortFieldIsIndexed() {
+        for (Params.Sort sort : Params.MOVIE_SORT) {
+            if (COMPUTED.contains(sort)) continue;
+            assertTrue(Schema.STATEMENTS.contains("CREATE RANGE INDEX movie_" + sort + " IF NOT EXISTS FOR (m:Movie) ON (m." + sort + ")"), sort.name());
+        }
+        for (Params.Sort sort : Params.PEOPLE_SORT) {
+            assertTrue(Schema.STATEMENTS.contains("CREATE RANGE INDEX person_" + sort + " IF NOT EXISTS FOR (p:Person) ON (p." + sort + ")"), sort.name());
+        }
+        for (Params.Sort sort : Params.RATING_SORT) {
+            assertTrue(Schema.STATEMENTS.contains("CREATE RANGE INDEX rated_" + sort + " IF NOT EXISTS FOR ()-[r:RATED]-() ON (r." + sort + ")"), sort.name());
+        }
+    }
+
+    @Test
+    void computedSortFieldsAreNotIndexed() {
+        for (Params.Sort sort : COMPUTED) {
+            assertTrue(Schema.STATEMENTS.stream().noneMatch(statement -> statement.contains("." + sort + ")")), sort.name());
+        }
+    }
+
+    @Test
+    void statementsAreIdempotentAndUniquelyNamed() {
+        var names = new HashSet<String>();
+        for (String statement : Schema.STATEMENTS) {
+            assertTrue(statement.contains(" IF NOT EXISTS "), statement);
+            assertTrue(names.add(statement.split(" ")[statement.startsWith("CREATE CONSTRAINT") ? 2 : 3]), statement);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package neoflix;
+
+import neoflix.services.MovieService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.summary.ProfiledPlan;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the db hits and latency of the live and weighted similar movies statements.
+ *
+ * Only runs with -Dbenchmark=true against the full dataset, for the most voted movies and
+ * Lock, Stock & Two Smoking Barrels:
+ *
+ *   mvn test -Dtest=SimilarityBenchmarkTest -Dbenchmark=true
+ */
+class SimilarityBenchmarkTest {
+    private static final int RUNS = Integer.getInteger("benchmark.runs", 10);
+    private static final int MOVIES = Integer.getInteger("benchmark.movies", 10);
+
+    private static Driver driver;
+
+    @BeforeAll
+    static void initDriver() {
+        Assumptions.assumeTrue(Boolean.getBoolean("benchmark"));
+        AppUtils.loadProperties();
+        driver = AppUtils.initDriver();
+    }
+
+    @AfterAll
+    static void closeDriver() {
+        if (driver != null) driver.close();
+    }
+
+    @Test
+    void compareLiveWithWeighted(TestReporter reporter) {
+        List<String> ids;
+        try (var session = driver.session()) {
+            ids = session.run("""
+                    MATCH (m:Movie) WHERE m.imdbVotes IS NOT NULL
+                    RETURN m.tmdbId AS id ORDER BY m.imdbVotes DESC LIMIT $movies
+                    """, Values.parameters("movies", MOVIES - 1)).list(row -> row.get("id").asString());
+        }
+        ids = new ArrayList<>(ids);
+        ids.add("100");
+
+        for (String id : ids) {
+            var live = run(MovieService.SimilarMode.LIVE, id);
+            var weighted = run(MovieService.SimilarMode.WEIGHTED, id);
+            reporter.publishEntry("movie " + id, String.format("db hits live %d, weighted %d; p50 live %.1fms, weighted %.1fms",
+                    live.dbHits(), weighted.dbHits(),
+                    live.latencies().percentile(0.5) / 1000.0, weighted.latencies().percentile(0.5) / 1000.0));
+        }
+    }
+
+    private record Result(long dbHits, LatencyHistogram latencies) {}
+
+    private static Result run(MovieService.SimilarMode mode, String id) {
+        String query = MovieService.similarMoviesQuery(mode, MovieService.FavoritesMode.CLIENT);
+        var parameters = Values.parameters("id", id, "skip", 0, "limit", 6, "favorites", List.of());
+        var latencies = new LatencyHistogram();
+        try (var session = driver.session()) {
+            long dbHits = dbHits(session.run("PROFILE " + query, parameters).consume().profile());
+            for (int i = 0; i < RUNS; i++) {
+                long start = System.nanoTime();
+                session.run(query, parameters).consume();
+                latencies.record(System.nanoTime() - start);
+            }
+            return new Result(dbHits, latencies);
+        }
+    }
+
+    private static long dbHits(ProfiledPlan plan) {
+        long hits = plan.dbHits();
+        for (ProfiledPlan child : plan.children()) hits += dbHits(child);
+        return hits;
+    }
+}
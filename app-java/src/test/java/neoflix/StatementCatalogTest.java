@@ -0,0 +1,42 @@
+package neoflix;
+
+import neoflix.services.MovieService.FavoritesMode;
+import neoflix.services.StatementCatalog;
+import neoflix.services.StatementCatalog.Template;
+import org.junit.jupiter.api.Test;
+
+import static neoflix.Params.Order.ASC;
+import static neoflix.Params.Order.DESC;
+import static neoflix.Params.Sort.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementCatalogTest {
+    private final StatementCatalog catalog = StatementCatalog.shared();
+
+    @Test
+    void sameCombinationReturnsSameQuery() {
+        var first = catalog.query(Template.MOVIES, new Params(null, imdbRating, DESC, 6, 0), FavoritesMode.SERVER);
+        var second = catalog.query(Template.MOVIES, new Params(null, imdbRating, DESC, 12, 6), FavoritesMode.SERVER);
+        assertSame(first, second);
+        assertTrue(first.text().contains("ORDER BY m.`imdbRating` DESC"));
+        assertTrue(first.text().contains("favorite: exists {"));
+    }
+
+    @Test
+    void combinationsAreDistinctStatements() {
+        var asc = catalog.query(Template.PEOPLE, new Params(null, born, ASC, 6, 0));
+        var desc = catalog.query(Template.PEOPLE, new Params(null, born, DESC, 6, 0));
+        var keyset = catalog.query(Template.PEOPLE, new Params(null, born, ASC, 6, 0, Params.Cursor.START));
+        assertNotEquals(asc.text(), desc.text());
+        assertNotEquals(asc.text(), keyset.text());
+        assertTrue(keyset.text().contains("ORDER BY p.`born` ASC, p.tmdbId ASC"));
+    }
+
+    @Test
+    void unsupportedSortFallsBackToDefault() {
+        var ratings = catalog.query(Template.RATINGS, new Params(null, title, ASC, 6, 0));
+        assertSame(catalog.query(Template.RATINGS, new Params(null, timestamp, ASC, 6, 0)), ratings);
+        assertSame(catalog.query(Template.MOVIES_BY_GENRE, new Params(null, title, ASC, 6, 0)),
+                catalog.query(Template.MOVIES_BY_GENRE, new Params(null, null, ASC, 6, 0)));
+    }
+}
@@ -0,0 +1,68 @@
+package neoflix;
+
+import neoflix.services.Suggestion;
+import neoflix.services.SuggestionIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestionIndexTest {
+
+    private static SuggestionIndex index() {
+        var index = new SuggestionIndex();
+        index.load(List.of(
+                new Suggestion("person", "31", "Tom Hanks"),
+                new Suggestion("person", "1", "Hannah Waddingham"),
+                new Suggestion("person", "2", "Penélope Cruz"),
+                new Suggestion("movie", "862", "Toy Story"),
+                new Suggestion("movie", "100", "Lock, Stock and Two Smoking Barrels"),
+                new Suggestion("movie", "13", "Forrest Gump")));
+        return index;
+    }
+
+    private static List<String> names(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::name).toList();
+    }
+
+    @Test
+    void namesStartingWithPrefixComeFirst() {
+        assertEquals(List.of("Hannah Waddingham", "Tom Hanks"), names(index().suggest("han", 10)));
+        assertEquals(List.of("Tom Hanks", "Toy Story"), names(index().suggest("  TO", 10)));
+    }
+
+    @Test
+    void namesStartingWithPrefixAreNotCutOffByWordMatches() {
+        var index = new SuggestionIndex();
+        var suggestions = new ArrayList<Suggestion>();
+        for (int i = 0; i < 20; i++) suggestions.add(new Suggestion("person", "h" + i, "Anna Hana " + i));
+        suggestions.add(new Suggestion("person", "z", "Hanz Zimmer"));
+        index.load(suggestions);
+
+        assertEquals(List.of("Hanz Zimmer"), names(index.suggest("han", 1)));
+        assertEquals(List.of("Hanz Zimmer", "Anna Hana 0", "Anna Hana 1"), names(index.suggest("han", 3)));
+    }
+
+    @Test
+    void everyWordIsIndexedOnce() {
+        assertEquals(List.of("Toy Story"), names(index().suggest("stor", 10)));
+        assertEquals(List.of("Lock, Stock and Two Smoking Barrels", "Toy Story"), names(index().suggest("st", 10)));
+        assertEquals(List.of("Lock, Stock and Two Smoking Barrels"), names(index().suggest("stock and", 10)));
+    }
+
+    @Test
+    void accentsAreIgnored() {
+        assertEquals(List.of("Penélope Cruz"), names(index().suggest("penel", 10)));
+        assertEquals(List.of("Penélope Cruz"), names(index().suggest("Pené", 10)));
+    }
+
+    @Test
+    void limitAndMisses() {
+        assertEquals(1, index().suggest("t", 1).size());
+        assertTrue(index().suggest("zz", 10).isEmpty());
+        assertTrue(index().suggest(" ", 10).isEmpty());
+        assertTrue(new SuggestionIndex().suggest("tom", 10).isEmpty());
+    }
+}
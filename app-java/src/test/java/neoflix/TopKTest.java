@@ -0,0 +1,83 @@
+package neoflix;
+
+import neoflix.services.TopK;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKTest {
+
+    @Test
+    void keepsHighestScoresInDescendingOrder() {
+        var top = new TopK(3);
+        top.offer("a", 1.0);
+        top.offer("b", 5.0);
+        top.offer("c", 3.0);
+        top.offer("d", 4.0);
+        top.offer("e", 2.0);
+        assertEquals(3, top.size());
+
+        assertEquals(List.of("b", "d", "c"), ids(top.page(0)));
+        assertEquals(0, top.size());
+    }
+
+    @Test
+    void pageSkipsTheFirstWinners() {
+        var top = new TopK(4);
+        for (int i = 0; i < 10; i++) top.offer("m" + i, i);
+
+        var page = top.page(2);
+        assertEquals(List.of("m7", "m6"), ids(page));
+        assertEquals(7.0, page.get(0).get("score"));
+    }
+
+    @Test
+    void tiesAreBrokenById() {
+        var forward = new TopK(2);
+        var backward = new TopK(2);
+        var ids = List.of("a", "b", "c", "d");
+        for (int i = 0; i < ids.size(); i++) {
+            forward.offer(ids.get(i), 1.0);
+            backward.offer(ids.get(ids.size() - 1 - i), 1.0);
+        }
+        assertEquals(List.of("a", "b"), ids(forward.page(0)));
+        assertEquals(List.of("a", "b"), ids(backward.page(0)));
+    }
+
+    @Test
+    void matchesFullSort() {
+        var random = new Random(7);
+        var top = new TopK(25);
+        var all = new ArrayList<Map<String, Object>>();
+        for (int i = 0; i < 20_000; i++) {
+            double score = random.nextInt(500) / 10.0;
+            top.offer("id" + i, score);
+            all.add(Map.of("id", "id" + i, "score", score));
+        }
+        all.sort(Comparator.comparing((Map<String, Object> m) -> (Double) m.get("score")).reversed()
+                .thenComparing(m -> (String) m.get("id")));
+
+        assertEquals(all.subList(5, 25), top.page(5));
+    }
+
+    @Test
+    void emptyAndZeroSized() {
+        assertTrue(new TopK(5).page(0).isEmpty());
+        var none = new TopK(0);
+        none.offer("a", 1.0);
+        assertTrue(none.page(0).isEmpty());
+        var few = new TopK(5);
+        few.offer("a", 1.0);
+        assertTrue(few.page(3).isEmpty());
+    }
+
+    private static List<Object> ids(List<Map<String, Object>> page) {
+        return page.stream().map(entry -> entry.get("id")).toList();
+    }
+}
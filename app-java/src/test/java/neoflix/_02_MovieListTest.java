@@ -1,10 +1,16 @@
 package neoflix;
 
 import neoflix.services.MovieService;
+import neoflix.services.StatementCatalog;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.neo4j.driver.Driver;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.summary.Plan;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import static neoflix.Params.Order.ASC;
 import static neoflix.Params.Order.DESC;
@@ -19,6 +25,7 @@ class _02_MovieListTest {
     static void initDriver() {
         AppUtils.loadProperties();
         driver = AppUtils.initDriver();
+        Schema.bootstrap(driver, 300);
     }
 
     @AfterAll
@@ -26,6 +33,46 @@ class _02_MovieListTest {
         if (driver != null) driver.close();
     }
 
+    @Test
+    void firstPageIsReadInIndexOrder() {
+        for (Params.Sort sort : Params.MOVIE_SORT) {
+            // computed per query, so there is no index to read it in order from
+            if (sort == score) continue;
+            for (Params.Order order : Params.Order.values()) {
+                var params = new Params(null, sort, order, 6, 0);
+                var query = StatementCatalog.shared().query(StatementCatalog.Template.MOVIES, params, MovieService.FavoritesMode.CLIENT);
+                try (var session = driver.session()) {
+                    var plan = session.run("EXPLAIN " + query.text(),
+                            Values.parameters("skip", 0, "limit", 6, "favorites", List.of())).consume().plan();
+                    var operators = operators(plan);
+                    // ORDER BY with SKIP and LIMIT is planned as Top when it sorts every row,
+                    // PartialSort and PartialTop only order the ties of the tmdbId tie-breaker
+                    assertFalse(operators.contains("Sort"), sort + " " + order + ": " + operators);
+                    assertFalse(operators.contains("Top"), sort + " " + order + ": " + operators);
+
+                    var leaf = leaf(plan);
+                    assertEquals("NodeIndexScan", leaf.operatorType().split("@")[0], sort + " " + order + ": " + operators);
+                    assertTrue(leaf.arguments().get("Details").asString().contains(":Movie(" + sort + ")"),
+                            sort + " " + order + ": " + leaf.arguments().get("Details"));
+                }
+            }
+        }
+    }
+
+    private static List<String> operators(Plan plan) {
+        var operators = new ArrayList<String>();
+        operators.add(plan.operatorType().split("@")[0]);
+        for (Plan child : plan.children()) {
+            operators.addAll(operators(child));
+        }
+        return operators;
+    }
+
+    private static Plan leaf(Plan plan) {
+        assertTrue(plan.children().size() <= 1, plan.operatorType() + " has " + plan.children().size() + " children");
+        return plan.children().isEmpty() ? plan : leaf(plan.children().get(0));
+    }
+
     @Test
     void applyOrderListAndSkip() {
         MovieService movieService = new MovieService(driver);
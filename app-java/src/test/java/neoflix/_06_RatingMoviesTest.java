@@ -18,6 +18,11 @@ class _06_RatingMoviesTest {
     private static final String userId = "1185150b-9e81-46a2-a1d3-eb649544b9c4";
     private static final int rating = 5;
 
+    // a movie of its own for the aggregate test, rated 3.5 by another user, so the real
+    // movie 680 and its counters are left as they were
+    private static final String fixtureMovieId = "neoflix-rating-aggregates";
+    private static final String fixtureUserId = "neoflix-rating-aggregates-user";
+
     @BeforeAll
     static void initDriver() {
         AppUtils.loadProperties();
@@ -26,11 +31,30 @@ class _06_RatingMoviesTest {
         if (driver != null) driver.session().executeWrite(tx -> tx.run("""
                 MERGE (u:User {userId: $userId}) SET u.email = $email
                 """, Values.parameters("userId", userId, "email", email)));
+
+        if (driver != null) removeFixture();
+        if (driver != null) driver.session().executeWrite(tx -> tx.run("""
+                CREATE (m:Movie {tmdbId: $movieId})
+                SET m.title = 'Rating Aggregates'
+                MERGE (u:User {userId: $userId})
+                MERGE (u)-[r:RATED]->(m)
+                SET r.rating = 3.5, r.timestamp = timestamp()
+                """, Values.parameters("movieId", fixtureMovieId, "userId", fixtureUserId)).consume());
     }
 
     @AfterAll
     static void closeDriver() {
-        if (driver != null) driver.close();
+        if (driver != null) {
+            removeFixture();
+            driver.close();
+        }
+    }
+
+    private static void removeFixture() {
+        driver.session().executeWrite(tx -> tx.run("""
+                MATCH (n) WHERE (n:Movie AND n.tmdbId = $movieId) OR (n:User AND n.userId = $userId)
+                DETACH DELETE n
+                """, Values.parameters("movieId", fixtureMovieId, "userId", fixtureUserId)).consume());
     }
 
     @Test
@@ -43,4 +67,19 @@ class _06_RatingMoviesTest {
         assertEquals(movieId, output.get("tmdbId"));
         assertEquals(rating, Integer.parseInt(output.get("rating").toString()));
     }
+
+    @Test
+    void ratingAggregatesFollowUpdatedRating() {
+        RatingService ratingService = new RatingService(driver);
+
+        // the counters are computed from the existing 3.5 rating on the first add
+        var first = ratingService.add(userId, fixtureMovieId, rating);
+        var updated = ratingService.add(userId, fixtureMovieId, rating - 2);
+
+        assertEquals(2, ((Number) first.get("ratingCount")).longValue());
+        assertEquals(8.5, ((Number) first.get("ratingSum")).doubleValue(), 1e-9);
+        assertEquals(2, ((Number) updated.get("ratingCount")).longValue());
+        assertEquals(6.5, ((Number) updated.get("ratingSum")).doubleValue(), 1e-9);
+        assertEquals(3.25, ((Number) updated.get("avgRating")).doubleValue(), 1e-9);
+    }
 }
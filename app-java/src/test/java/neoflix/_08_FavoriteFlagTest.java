@@ -1,5 +1,6 @@
 package neoflix;
 
+import neoflix.services.FavoriteIdCache;
 import neoflix.services.FavoriteService;
 import neoflix.services.MovieService;
 import org.junit.jupiter.api.*;
@@ -39,6 +40,8 @@ class _08_FavoriteFlagTest {
                     """,
                     Values.parameters("userId", userId, "email", email)));
         }
+        // favorites were removed directly in the database
+        FavoriteIdCache.shared().invalidate(userId);
     }
 
     @Test
@@ -68,4 +71,24 @@ class _08_FavoriteFlagTest {
         assertEquals(true, topTwo.get(0).get("favorite"));
         assertEquals(false, topTwo.get(1).get("favorite"));
     }
+
+    @Test
+    void favoriteFlagComputedInQuery() {
+        MovieService movieService = new MovieService(driver, MovieService.FavoritesMode.SERVER);
+        FavoriteService favoriteService = new FavoriteService(driver);
+
+        var topMovie = movieService.all(new Params(null, imdbRating, DESC, 1, 0), userId);
+        var topMovieId = topMovie.get(0).get("tmdbId").toString();
+        assertEquals(false, topMovie.get(0).get("favorite"));
+
+        favoriteService.add(userId, topMovieId);
+
+        var topTwo = movieService.all(new Params(null, imdbRating, DESC, 2, 0), userId);
+        assertEquals(topMovieId, topTwo.get(0).get("tmdbId"));
+        assertEquals(true, topTwo.get(0).get("favorite"));
+        assertEquals(false, topTwo.get(1).get("favorite"));
+
+        var anonymous = movieService.all(new Params(null, imdbRating, DESC, 1, 0), null);
+        assertEquals(false, anonymous.get(0).get("favorite"));
+    }
 }
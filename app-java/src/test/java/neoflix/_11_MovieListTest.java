@@ -1,5 +1,6 @@
 package neoflix;
 
+import neoflix.services.Movie;
 import neoflix.services.MovieService;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -99,6 +100,46 @@ class _11_MovieListTest {
         assertNotEquals(output.get(0).get("title"), reordered.get(0).get("title"));
     }
 
+    @Test
+    void getKeysetPaginatedMoviesByDirector() {
+        MovieService movieService = new MovieService(driver);
+
+        var limit = 5;
+        // the same order as the keyset pages, titles with the tmdbId as tie-breaker
+        var expected = movieService.getForDirector(coppola, new Params(null, title, Params.Order.ASC, 15, 0, Params.Cursor.START), userId, Movie::from);
+
+        var first = new Params(null, title, Params.Order.ASC, limit, 0, Params.Cursor.START);
+        var page = movieService.getForDirector(coppola, first, userId, Movie::from);
+        assertEquals(expected.subList(0, limit), page);
+
+        var next = new Params(null, title, Params.Order.ASC, limit, 0, Params.Cursor.decode(first.nextCursor(page)));
+        var secondPage = movieService.getForDirector(coppola, next, userId, Movie::from);
+        assertEquals(expected.subList(limit, 2 * limit), secondPage);
+
+        // the cursor marks where the page starts, skip is not applied on top of it
+        var skipped = new Params(null, title, Params.Order.ASC, limit, 3, next.cursor());
+        assertEquals(secondPage, movieService.getForDirector(coppola, skipped, userId, Movie::from));
+    }
+
+    @Test
+    void getKeysetPaginatedMoviesByDirectorAndReleaseDate() {
+        MovieService movieService = new MovieService(driver);
+
+        var limit = 5;
+        var expected = movieService.getForDirector(coppola, new Params(null, released, Params.Order.DESC, 15, 0, Params.Cursor.START), userId, Movie::from);
+
+        var first = new Params(null, released, Params.Order.DESC, limit, 0, Params.Cursor.START);
+        var page = movieService.getForDirector(coppola, first, userId, Movie::from);
+        assertEquals(expected.subList(0, limit), page);
+
+        // the release date is a DATE in the database, so the cursor has to keep it one
+        var cursor = Params.Cursor.decode(first.nextCursor(page));
+        assertEquals(page.get(limit - 1).released(), cursor.after());
+
+        var next = new Params(null, released, Params.Order.DESC, limit, 0, cursor);
+        assertEquals(expected.subList(limit, 2 * limit), movieService.getForDirector(coppola, next, userId, Movie::from));
+    }
+
     @Test
     void getMoviesDirectedByCoppola() {
         MovieService movieService = new MovieService(driver);
@@ -1,12 +1,21 @@
 package neoflix;
 
+import neoflix.services.BatchJobs;
+import neoflix.services.FavoriteIdCache;
+import neoflix.services.Movie;
 import neoflix.services.MovieService;
+import neoflix.services.RatingCountCache;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.neo4j.driver.Driver;
+import org.neo4j.driver.Value;
 import org.neo4j.driver.Values;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import static neoflix.Params.Sort.title;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -42,6 +51,78 @@ class _12_MovieDetailsTest {
         assertEquals("Lock, Stock & Two Smoking Barrels", output.get("title"));
     }
 
+    @Test
+    void getMovieByIdAsync() throws Exception {
+        MovieService movieService = new MovieService(driver);
+
+        var output = movieService.findByIdAsync(lockStock, userId, Movie::from).get(10, TimeUnit.SECONDS);
+        assertEquals(Movie.from(Values.value(movieService.findById(lockStock, userId))), output);
+
+        var similar = movieService.getSimilarMoviesAsync(lockStock, new Params(null, title, Params.Order.ASC, 2, 0), userId, Movie::from);
+        assertEquals(2, similar.get(10, TimeUnit.SECONDS).size());
+    }
+
+    @Test
+    void getMovieByIdFanOut() throws Exception {
+        var single = new MovieService(driver, MovieService.FavoritesMode.CLIENT, new FavoriteIdCache(10, Duration.ofMinutes(5)),
+                MovieService.DetailMode.SINGLE, new RatingCountCache(10, Duration.ofMinutes(5)));
+        var fanOut = new MovieService(driver, MovieService.FavoritesMode.SERVER, new FavoriteIdCache(10, Duration.ofMinutes(5)),
+                MovieService.DetailMode.FANOUT, new RatingCountCache(10, Duration.ofMinutes(5)));
+
+        var expected = single.findById(lockStock, userId, Movie::from);
+        var output = fanOut.findByIdAsync(lockStock, userId, Movie::from).get(10, TimeUnit.SECONDS);
+        assertEquals(expected.title(), output.title());
+        assertEquals(expected.ratingCount(), output.ratingCount());
+        assertEquals(expected.favorite(), output.favorite());
+        assertEquals(expected.actors().size(), output.actors().size());
+        assertEquals(expected.directors().size(), output.directors().size());
+        assertEquals(expected.genres().size(), output.genres().size());
+    }
+
+    @Test
+    void getSimilarMoviesPrecomputed() {
+        new BatchJobs(driver).refreshSimilarMoviesIfStale(Duration.ofDays(1), 50, 100);
+        var live = new MovieService(driver, MovieService.FavoritesMode.CLIENT, new FavoriteIdCache(10, Duration.ofMinutes(5)),
+                MovieService.DetailMode.SINGLE, new RatingCountCache(10, Duration.ofMinutes(5)), MovieService.SimilarMode.LIVE);
+        var precomputed = new MovieService(driver, MovieService.FavoritesMode.CLIENT, new FavoriteIdCache(10, Duration.ofMinutes(5)),
+                MovieService.DetailMode.SINGLE, new RatingCountCache(10, Duration.ofMinutes(5)), MovieService.SimilarMode.PRECOMPUTED);
+
+        var params = new Params(null, title, Params.Order.ASC, 3, 0);
+        var expected = live.getSimilarMovies(lockStock, params, userId, Movie::from);
+        var output = precomputed.getSimilarMovies(lockStock, params, userId, Movie::from);
+        assertTrue(precomputed.similarMoviesRefreshedAt().isPresent());
+        assertEquals(expected.stream().map(Movie::score).toList(), output.stream().map(Movie::score).toList());
+    }
+
+    @Test
+    void getSimilarMoviesWeighted() {
+        var weighted = new MovieService(driver, MovieService.FavoritesMode.CLIENT, new FavoriteIdCache(10, Duration.ofMinutes(5)),
+                MovieService.DetailMode.SINGLE, new RatingCountCache(10, Duration.ofMinutes(5)), MovieService.SimilarMode.WEIGHTED);
+
+        var output = weighted.getSimilarMovies(lockStock, new Params(null, title, Params.Order.ASC, 6, 0), userId, Movie::from);
+        assertFalse(output.isEmpty());
+        for (int i = 0; i < output.size(); i++) {
+            assertNotEquals(lockStock, output.get(i).tmdbId());
+            if (i > 0) assertTrue(output.get(i - 1).score() >= output.get(i).score());
+        }
+    }
+
+    @Test
+    void queryTimingsRecordedPerServiceMethod() throws Exception {
+        MovieService movieService = new MovieService(driver);
+
+        movieService.findByIdAsync(lockStock, userId, Value::asMap).get();
+        movieService.findById(lockStock, userId);
+
+        for (var statement : List.of("MovieService.findById", "MovieService.findByIdAsync")) {
+            var timings = Metrics.querySummary().stream()
+                    .filter(query -> statement.equals(query.get("statement")))
+                    .findFirst();
+            assertTrue(timings.isPresent(), statement);
+            assertTrue((Long) timings.get().get("count") >= 1);
+        }
+    }
+
     @Test
     void getSimilarMoviesByScore() {
         MovieService movieService = new MovieService(driver);
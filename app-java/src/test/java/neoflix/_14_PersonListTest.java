@@ -1,6 +1,8 @@
 package neoflix;
 
+import neoflix.services.FullTextSearch;
 import neoflix.services.PeopleService;
+import neoflix.services.Person;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -41,6 +43,15 @@ class _14_PersonListTest {
         assertEquals("50 Cent", paginated.get(0).get("name"));
     }
 
+    @Test
+    void streamPersonList() {
+        PeopleService peopleService = new PeopleService(driver);
+
+        var params = new Params(null, name, Params.Order.ASC, 250, 0);
+        var streamed = peopleService.allStream(params, Person::from).collectList().block();
+        assertEquals(peopleService.all(params, Person::from), streamed);
+    }
+
     @Test
     void getOrderedPaginatedPersonList() {
         PeopleService peopleService = new PeopleService(driver);
@@ -56,6 +67,22 @@ class _14_PersonListTest {
         assertEquals("Álex Angulo", last.get(0).get("name"));
     }
 
+    @Test
+    void searchPersonsByFullTextIndex() {
+        Schema.bootstrap(driver, 300);
+        PeopleService peopleService = new PeopleService(driver, FullTextSearch.Mode.FULLTEXT);
+
+        var params = new Params("tom han", name, Params.Order.ASC, 5, 0);
+        assertTrue(peopleService.searches(params));
+        var output = peopleService.all(params, Person::from);
+        assertFalse(output.isEmpty());
+        assertTrue(output.size() <= 5);
+        assertTrue(output.stream().anyMatch(person -> "Tom Hanks".equals(person.name())));
+        for (int i = 1; i < output.size(); i++) {
+            assertTrue(output.get(i - 1).score() >= output.get(i).score());
+        }
+    }
+
     @Test
     void getOrderedPaginatedQueryForPersons() {
         PeopleService peopleService = new PeopleService(driver);
@@ -1,11 +1,16 @@
 package neoflix;
 
+import neoflix.services.BatchJobs;
+import neoflix.services.FullTextSearch;
 import neoflix.services.PeopleService;
+import neoflix.services.Person;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.neo4j.driver.Driver;
 
+import java.time.Duration;
+
 import static neoflix.Params.Sort.name;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -37,6 +42,56 @@ class _15_PersonProfileTest {
         assertEquals(2, Integer.parseInt(output.get("actedCount").toString()));
     }
 
+    @Test
+    void peopleSortedByStoredMovieCount() {
+        new BatchJobs(driver).backfillPersonCounts(1000);
+        PeopleService peopleService = new PeopleService(driver);
+
+        var person = peopleService.findById(coppola, Person::from);
+        assertNotNull(person.movieCount());
+        assertTrue(person.movieCount() >= Math.max(person.actedCount(), person.directedCount()));
+        assertTrue(person.movieCount() <= person.actedCount() + person.directedCount());
+
+        var output = peopleService.all(new Params(null, Params.Sort.movieCount, Params.Order.DESC, 10, 0), Person::from);
+        assertEquals(10, output.size());
+        for (int i = 1; i < output.size(); i++) {
+            assertTrue(output.get(i - 1).movieCount() >= output.get(i).movieCount());
+        }
+    }
+
+    @Test
+    void getSimilarPeoplePrecomputed() {
+        new BatchJobs(driver).refreshWorkedWithIfStale(Duration.ofDays(1), 100);
+        var live = new PeopleService(driver, FullTextSearch.Mode.CONTAINS, PeopleService.SimilarMode.LIVE);
+        var precomputed = new PeopleService(driver, FullTextSearch.Mode.CONTAINS, PeopleService.SimilarMode.PRECOMPUTED);
+        assertTrue(precomputed.similarPeopleRefreshedAt().isPresent());
+
+        var params = new Params(null, name, Params.Order.ASC, 6, 0);
+        var output = precomputed.getSimilarPeople(coppola, params, Person::from);
+        assertEquals(6, output.size());
+        for (int i = 1; i < output.size(); i++) {
+            assertTrue(output.get(i - 1).inCommon().size() >= output.get(i).inCommon().size());
+        }
+        // the live query also counts the credits of the person with themselves
+        var expected = live.getSimilarPeople(coppola, new Params(null, name, Params.Order.ASC, 7, 0), Person::from).stream()
+                .filter(person -> !coppola.equals(person.tmdbId()))
+                .map(person -> person.inCommon().size()).limit(6).toList();
+        assertEquals(expected, output.stream().map(person -> person.inCommon().size()).toList());
+    }
+
+    @Test
+    void getSimilarPeopleTopK() throws Exception {
+        var live = new PeopleService(driver, FullTextSearch.Mode.CONTAINS, PeopleService.SimilarMode.LIVE);
+        var topK = new PeopleService(driver, FullTextSearch.Mode.CONTAINS, PeopleService.SimilarMode.TOPK);
+
+        var params = new Params(null, name, Params.Order.ASC, 4, 2);
+        var expected = live.getSimilarPeople(coppola, params, Person::from);
+        var output = topK.getSimilarPeople(coppola, params, Person::from);
+        assertEquals(expected.stream().map(person -> person.inCommon().size()).toList(),
+                output.stream().map(person -> person.inCommon().size()).toList());
+        assertEquals(output, topK.getSimilarPeopleAsync(coppola, params, Person::from).get());
+    }
+
     @Test
     void getSimilarPeopleByPersonId() {
         PeopleService peopleService = new PeopleService(driver);
@@ -64,12 +64,24 @@ set
 	m.year=toInteger(row.year),
 	m.genres=row.genres;
 
+// credit counts stored on the person, so people can be sorted by movieCount through an index
+CREATE RANGE INDEX person_movieCount IF NOT EXISTS
+FOR (x:Person)
+ON (x.movieCount);
+
+MATCH (p:Person)
+SET p.actedCount = 0, p.directedCount = 0, p.movieCount = 0;
+
 // load ACTED_IN
+// the counts are only incremented when the relationship is new, a movie also directed is counted once
 LOAD CSV WITH HEADERS
 FROM 'https://data.neo4j.com/importing-cypher/acted_in.csv' AS row
 MATCH (p:Person {tmdbId: toInteger(row.person_tmdbId)})
 MATCH (m:Movie {movieId: toInteger(row.movieId)})
 MERGE (p)-[r:ACTED_IN]->(m)
+ON CREATE SET
+	p.actedCount = coalesce(p.actedCount, 0) + 1,
+	p.movieCount = coalesce(p.movieCount, 0) + CASE WHEN exists { (p)-[:DIRECTED]->(m) } THEN 0 ELSE 1 END
 SET r.role = row.role;
 
 
@@ -80,6 +92,9 @@ FROM 'https://data.neo4j.com/importing-cypher/directed.csv' AS row
 MATCH (p:Person {tmdbId: toInteger(row.person_tmdbId)})
 MATCH (m:Movie {movieId: toInteger(row.movieId)})
 MERGE (p)-[r:DIRECTED]->(m)
+ON CREATE SET
+	p.directedCount = coalesce(p.directedCount, 0) + 1,
+	p.movieCount = coalesce(p.movieCount, 0) + CASE WHEN exists { (p)-[:ACTED_IN]->(m) } THEN 0 ELSE 1 END
 SET r.role = row.role;
 
 